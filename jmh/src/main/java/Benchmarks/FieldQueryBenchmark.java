@@ -0,0 +1,71 @@
+package Benchmarks;
+
+import Animals.*;
+import Field.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//queries on a filled field: nearest animal of a species, free spot checks and finding a free spot nearby
+//the field is square, agents are spread at random with two rabbits for every fox
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldQueryBenchmark {
+    private static final int QUERIES = 1024; //power of two, queries cycle through them
+
+    @Param({"100", "316"})
+    public int size;
+
+    @Param({"1000", "10000", "100000"})
+    public int agents;
+
+    @Param({"GRID", "KD_TREE", "SWEEP_AND_PRUNE"})
+    public String index; //a SpatialIndex.Type, as text since the generated code cannot name types in the Field package
+
+    private Field field;
+    private int rabbit;
+    private RandomStream rand;
+    private final Vector2 spot = new Vector2();
+    private final double[] query_xs = new double[QUERIES];
+    private final double[] query_ys = new double[QUERIES];
+    private int next = 0;
+
+    @Setup
+    public void fill() {
+        field = new Field(size, size, SpatialIndex.Type.valueOf(index));
+        AnimalStore store = new AnimalStore(field.getSpecies());
+        rand = new RandomStream(42);
+        for (int i = 0; i < agents; i++) {
+            double x = rand.nextDouble() * size;
+            double y = rand.nextDouble() * size;
+            field.put(i % 3 == 0 ? new Fox(store, rand, true, x, y) : new Rabbit(store, rand, true, x, y));
+        }
+        rabbit = field.getSpecies().idOf(Rabbit.class);
+        for (int i = 0; i < QUERIES; i++) {
+            query_xs[i] = rand.nextDouble() * size;
+            query_ys[i] = rand.nextDouble() * size;
+        }
+    }
+
+    @Benchmark
+    public Animal closestAnimalOfType() {
+        int i = next++ & (QUERIES - 1);
+        return field.closestAnimalOfType(query_xs[i], query_ys[i], rabbit);
+    }
+
+    @Benchmark
+    public boolean isEmpty() {
+        int i = next++ & (QUERIES - 1);
+        return field.isEmpty(query_xs[i], query_ys[i], 1.0);
+    }
+
+    @Benchmark
+    public boolean randomNearbyLocation() {
+        int i = next++ & (QUERIES - 1);
+        return field.randomNearbyLocation(query_xs[i], query_ys[i], 2.0, 1.0, 100, rand, spot);
+    }
+}
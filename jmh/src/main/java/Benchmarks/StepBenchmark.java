@@ -0,0 +1,51 @@
+package Benchmarks;
+
+import Animals.*;
+import Simulator.Simulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//full simulation steps, the same setup as the window with a fixed seed
+//populations change quickly after the start, so every measurement is a batch of steps from a freshly populated board
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = StepBenchmark.STEPS)
+@Measurement(iterations = 10, batchSize = StepBenchmark.STEPS)
+@Fork(1)
+public class StepBenchmark {
+    static final int STEPS = 10; //steps per measurement
+
+    @Param({"100", "316"})
+    public int size;
+
+    @Param({"1000", "10000", "100000"})
+    public int max_animals; //the same knob as in Main, about one in eight tries places an animal
+
+    @Param({"1"})
+    public int threads;
+
+    private Simulator simulator;
+
+    @Setup(Level.Iteration)
+    public void populate() {
+        simulator = new Simulator(size, size, max_animals);
+        simulator.addAnimal(Rabbit.class, 0.08);
+        simulator.addAnimal(Fox.class, 0.04);
+        simulator.addAnimal(Human.class, 0.0005);
+        simulator.setSeed(42);
+        simulator.setThreads(threads);
+        simulator.populate();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopThreads() {
+        simulator.setThreads(1);
+    }
+
+    @Benchmark
+    public void simulateOneStep() {
+        simulator.simulateOneStep();
+    }
+}
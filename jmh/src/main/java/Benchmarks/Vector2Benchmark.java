@@ -0,0 +1,46 @@
+package Benchmarks;
+
+import Field.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//the allocating Vector2 operations next to their in place and raw coordinate versions
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Vector2Benchmark {
+    private final Vector2 a = new Vector2(3, 4);
+    private final Vector2 b = new Vector2(-1, 2);
+    private final Vector2 result = new Vector2();
+
+    @Benchmark
+    public Vector2 add() {return a.add(b);}
+
+    @Benchmark
+    public Vector2 addLocal() {return result.set(a).addLocal(b);}
+
+    @Benchmark
+    public double distance() {return a.distance(b);}
+
+    @Benchmark
+    public double distanceCoordinates() {return Vector2.distance(a.x, a.y, b.x, b.y);}
+
+    @Benchmark
+    public double distanceSquared() {return a.distanceSquared(b);}
+
+    @Benchmark
+    public Vector2 normalized() {return a.normalized();}
+
+    @Benchmark
+    public Vector2 normalizeLocal() {return result.set(a).normalizeLocal();}
+
+    @Benchmark
+    public Vector2 move() {return a.move(b, 2.0);}
+
+    @Benchmark
+    public Vector2 moveLocal() {return result.set(a).moveLocal(b, 2.0);}
+}
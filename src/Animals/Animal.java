@@ -3,27 +3,41 @@ package Animals;
 import Field.*;
 
 import java.awt.*;
-import java.util.List;
 
 //superclass for animals
+//an animal is a view of one slot of an AnimalStore, the store holds its state and the subclass decides its behaviour
 public abstract class Animal {
-    private boolean is_alive = true; //should be kept in simulation
-    private int age = 0; //how long has been alive
-    protected Vector2 location; //where is it on the field
-    double radius = 1; //how big is it
+    protected AnimalStore store; //where the state of the animal is kept, babies of a parallel step move to the simulation's store
+    int slot; //position in the store, -1 once removed from it
+    int handle; //stays the same while the animal is in the store, used by fields to refer to it
 
-    //create animal at location with age 0
-    public Animal(Vector2 location){this.location = location;}
+    //create animal at location with age 0, it gets its own random stream split off the one of its creator
+    public Animal(AnimalStore store, RandomStream rand, double x, double y){
+        this.store = store;
+        this.slot = store.add(this, x, y);
+        rand.split(store.streams, store.gammas, slot);
+    }
+
+    //view of an animal that is already in a store, for example one read back from a checkpoint
+    //every species needs a public (AnimalStore, int) constructor calling this, so it can be read back
+    protected Animal(AnimalStore store, int slot){
+        this.store = store;
+        this.slot = slot;
+        this.handle = store.getHandle(slot);
+    }
 
-    //step the simulation
-    public void step(Field current_field, Field next_field, List<Animal> new_animals){
-        age++;
+    //step the simulation, looking at the current field and writing into the next step
+    //rand is a stream the caller lends out, it is set to the animal's own stream so every animal draws the same numbers no matter who steps it
+    public void step(Field current_field, NextStep next_step, RandomStream rand){
+        rand.set(store.streams[slot], store.gammas[slot]);
+        store.ages[slot]++;
         checkDeath();
-        if(is_alive){performActions(current_field,next_field,new_animals);}
+        if(store.alive[slot]){performActions(current_field,next_step,rand);}
+        store.streams[slot] = rand.getState(); //continue from here next step
     };
 
     //abstract methods
-    protected abstract void performActions(Field current_field, Field next_field, List<Animal> new_animals); //perform actions every step
+    protected abstract void performActions(Field current_field, NextStep next_step, RandomStream rand); //perform actions every step
 
     protected abstract void checkDeath(); //kill animal if needed
 
@@ -35,18 +49,42 @@ public abstract class Animal {
 
     //getters and setters
     protected int getAge(){
-        return age;
+        return store.ages[slot];
     }
-    protected void setAge(int age){this.age = age;}
+    protected void setAge(int age){store.ages[slot] = age;}
     public double getRadius(){
-        return radius;
+        return store.radii[slot];
     }
-    protected void setRadius(double radius){this.radius = radius;}
+    protected void setRadius(double radius){store.radii[slot] = (float)radius;}
     public boolean isAlive(){
-        return is_alive;
+        return store.alive[slot];
     }
     public void kill(){
-        is_alive = false;
+        store.alive[slot] = false;
+    }
+    //kill and count the death, an animal that is already dead is not counted again
+    protected void kill(Metrics.Cause cause){
+        if(!store.alive[slot]){return;}
+        store.alive[slot] = false;
+        Metrics metrics = store.getMetrics();
+        if(metrics != null){metrics.death(cause);}
     }
-    public Vector2 getLocation(){return location;}
+    public double getX(){return store.xs[slot];}
+    public double getY(){return store.ys[slot];}
+    public Vector2 getLocation(){return new Vector2(store.xs[slot], store.ys[slot]);}
+    public int getSpecies(){return store.species_ids[slot];}
+    public int getSlot(){return slot;}
+    public int getHandle(){return handle;}
+
+    //settings of this animal's species in its simulation, or the defaults if none were set
+    @SuppressWarnings("unchecked")
+    protected <T> T parameters(T defaults){
+        Object species_parameters = store.getSpecies().getParameters(getSpecies());
+        return species_parameters == null ? defaults : (T) species_parameters;
+    }
+
+    //vector for animals to write locations into, so finding a spot does not make a new one every time
+    //one per thread, only use it until the next call that could write it
+    private static final ThreadLocal<Vector2> SCRATCH = ThreadLocal.withInitial(Vector2::new);
+    protected static Vector2 scratch(){return SCRATCH.get();}
 }
@@ -0,0 +1,35 @@
+package Animals;
+
+import Field.RandomStream;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+//makes animals of one species, bound once so making an animal does not look up a constructor every time
+//e.g. Rabbit::new, or AnimalFactory.of(Rabbit.class) for a class only known at run time
+@FunctionalInterface
+public interface AnimalFactory {
+    //make an animal in a store at a location, with a random age or age 0
+    Animal create(AnimalStore store, RandomStream rand, boolean random_age, double x, double y);
+
+    //factory calling the public (AnimalStore, RandomStream, boolean, double, double) constructor of a class
+    static AnimalFactory of(Class<? extends Animal> type) {
+        MethodType signature = MethodType.methodType(void.class, AnimalStore.class, RandomStream.class, boolean.class, double.class, double.class);
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup().findConstructor(type, signature).asType(signature.changeReturnType(Animal.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(type.getName() + " has no public constructor taking " + signature.parameterList(), e);
+        }
+        return (store, rand, random_age, x, y) -> {
+            try {
+                return (Animal) constructor.invokeExact(store, rand, random_age, x, y);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("could not make a " + type.getSimpleName(), e);
+            }
+        };
+    }
+}
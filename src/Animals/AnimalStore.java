@@ -0,0 +1,338 @@
+package Animals;
+
+import Field.CheckpointReader;
+import Field.CheckpointWriter;
+import Field.Metrics;
+import Field.TraitStats;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+//holds the state of all animals in a simulation in parallel arrays, one slot per animal
+//the Animal objects are thin views that only know their slot and decide what the animal does
+//iterating over slots walks through a few tightly packed arrays instead of chasing an object per animal
+//slots move when animals are removed, so every animal also gets a handle that stays the same for its whole life
+//it also counts the animals of each species and keeps statistics of their genes as animals come and go
+public class AnimalStore {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final double GENE_BIN_WIDTH = 0.01; //width of the bins of the gene histograms, the most a gene mutates at once
+
+    private final SpeciesRegistry species; //gives out species ids of new animals
+    private Metrics metrics; //where deaths are counted, null to not count them
+    private int size = 0; //slots in use
+    private int[] freed_slots = new int[INITIAL_CAPACITY]; //slots waiting to be removed by the next compact
+    private int freed = 0;
+
+    //stable handles, a handle is given back when its animal is removed and can then be reused
+    private int[] handles = new int[INITIAL_CAPACITY]; //handle of each slot
+    private int[] slots_of_handles = new int[INITIAL_CAPACITY]; //slot of each handle, -1 if not in use
+    private int[] free_handles = new int[INITIAL_CAPACITY]; //handles that were given back
+    private int free_handle_count = 0;
+    private int handle_count = 0; //handles ever made, all handles are below this
+
+    private int[] species_counts = new int[0]; //animals of each species id in the store
+    private TraitStats[] gene_stats = new TraitStats[0]; //genes of each species id, null for species that have no gene
+
+    //animal state, indexed by slot. package private so the animal views can use them directly
+    Animal[] views = new Animal[INITIAL_CAPACITY];
+    double[] xs = new double[INITIAL_CAPACITY]; //location
+    double[] ys = new double[INITIAL_CAPACITY];
+    float[] radii = new float[INITIAL_CAPACITY]; //animals are 1 or 2 wide, a float holds that exactly in half the space
+    int[] ages = new int[INITIAL_CAPACITY];
+    int[] species_ids = new int[INITIAL_CAPACITY];
+    boolean[] alive = new boolean[INITIAL_CAPACITY];
+    double[] genes = new double[INITIAL_CAPACITY]; //speed gene, 0 for animals without one
+    int[] food = new int[INITIAL_CAPACITY]; //food level, only used by animals that get hungry
+    long[] streams = new long[INITIAL_CAPACITY]; //state of the random stream of each animal
+    long[] gammas = new long[INITIAL_CAPACITY]; //gamma of the random stream of each animal, see RandomStream
+    byte[] roles = new byte[INITIAL_CAPACITY]; //what the animal does within its species, e.g. whether a human builds, 0 if its species has one role
+
+    public AnimalStore(SpeciesRegistry species) {
+        this.species = species;
+    }
+
+    //give a new animal a slot at the end of the store, it starts alive with age 0
+    int add(Animal view, double x, double y) {
+        if (size == views.length) {grow();}
+        int slot = size++;
+        int handle = newHandle();
+        handles[slot] = handle;
+        slots_of_handles[handle] = slot;
+        view.handle = handle;
+        views[slot] = view;
+        xs[slot] = x;
+        ys[slot] = y;
+        radii[slot] = 1;
+        ages[slot] = 0;
+        species_ids[slot] = species.register(view.getClass());
+        countSpecies(species_ids[slot], 1);
+        alive[slot] = true;
+        genes[slot] = 0;
+        food[slot] = 0;
+        roles[slot] = 0;
+        return slot;
+    }
+
+    //move an animal from another store to the end of this one, it gets a new slot and handle here
+    //used to bring babies born in a parallel step into the simulation, both stores have to share a species registry
+    void adopt(Animal view) {
+        AnimalStore from = view.store;
+        int from_slot = view.slot;
+        if (size == views.length) {grow();}
+        int slot = size++;
+        int handle = newHandle();
+        handles[slot] = handle;
+        slots_of_handles[handle] = slot;
+        views[slot] = view;
+        xs[slot] = from.xs[from_slot];
+        ys[slot] = from.ys[from_slot];
+        radii[slot] = from.radii[from_slot];
+        ages[slot] = from.ages[from_slot];
+        species_ids[slot] = from.species_ids[from_slot];
+        alive[slot] = from.alive[from_slot];
+        genes[slot] = from.genes[from_slot];
+        countSpecies(species_ids[slot], 1);
+        if (from.getGeneStats(species_ids[slot]) != null) {geneStats(species_ids[slot]).add(genes[slot]);}
+        food[slot] = from.food[from_slot];
+        streams[slot] = from.streams[from_slot];
+        gammas[slot] = from.gammas[from_slot];
+        roles[slot] = from.roles[from_slot];
+        from.views[from_slot] = null; //the old store no longer owns the view
+        view.store = this;
+        view.slot = slot;
+        view.handle = handle;
+    }
+
+    //remove an animal right away by moving the last animal into its slot
+    //this changes the slot of the last animal, so do not use it while iterating over slots, use free instead
+    public void remove(int slot) {
+        int last = size - 1;
+        releaseHandle(slot);
+        if (slot != last) {moveSlot(last, slot);}
+        views[last] = null;
+        size--;
+    }
+
+    //mark a slot to be removed, it keeps its place until compact is called so slots stay valid during a step
+    public void free(int slot) {
+        if (freed == freed_slots.length) {freed_slots = Arrays.copyOf(freed_slots, freed * 2);}
+        freed_slots[freed++] = slot;
+    }
+
+    //remove all freed slots in one pass, moving the remaining animals down while keeping their order
+    public void compact() {
+        if (freed == 0) {return;}
+        Arrays.sort(freed_slots, 0, freed);
+        int next_freed = 0;
+        int kept = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (next_freed < freed && freed_slots[next_freed] == slot) {
+                while (next_freed < freed && freed_slots[next_freed] == slot) {next_freed++;} //freed more than once
+                releaseHandle(slot);
+                continue;
+            }
+            if (kept != slot) {moveSlot(slot, kept);}
+            kept++;
+        }
+        Arrays.fill(views, kept, size, null); //let removed views be collected
+        size = kept;
+        freed = 0;
+    }
+
+    //set the gene of a new animal, a species either gives all its animals a gene when they are made or none of them
+    void setGene(int slot, double gene) {
+        genes[slot] = gene;
+        geneStats(species_ids[slot]).add(gene);
+    }
+
+    //remove all animals
+    public void clear() {
+        for (int slot = 0; slot < size; slot++) {if (views[slot] != null) {views[slot].slot = -1;}} //adopted views belong to another store
+        Arrays.fill(views, 0, size, null);
+        Arrays.fill(species_counts, 0);
+        for (TraitStats stats : gene_stats) {if (stats != null) {stats.clear();}}
+        size = 0;
+        freed = 0;
+        free_handle_count = 0;
+        handle_count = 0;
+    }
+
+    //copy the animal in one slot over another one
+    private void moveSlot(int from, int to) {
+        views[to] = views[from];
+        xs[to] = xs[from];
+        ys[to] = ys[from];
+        radii[to] = radii[from];
+        ages[to] = ages[from];
+        species_ids[to] = species_ids[from];
+        alive[to] = alive[from];
+        genes[to] = genes[from];
+        food[to] = food[from];
+        streams[to] = streams[from];
+        gammas[to] = gammas[from];
+        roles[to] = roles[from];
+        handles[to] = handles[from];
+        slots_of_handles[handles[to]] = to;
+        if (views[to] != null) {views[to].slot = to;} //adopted views belong to another store
+    }
+
+    //get an unused handle, reusing given back ones first
+    private int newHandle() {
+        if (free_handle_count > 0) {return free_handles[--free_handle_count];}
+        if (handle_count == slots_of_handles.length) {slots_of_handles = Arrays.copyOf(slots_of_handles, handle_count * 2);}
+        return handle_count++;
+    }
+
+    //give back the handle of a slot that is being removed, its view no longer has state
+    private void releaseHandle(int slot) {
+        int species_id = species_ids[slot];
+        countSpecies(species_id, -1);
+        if (species_id < gene_stats.length && gene_stats[species_id] != null) {gene_stats[species_id].remove(genes[slot]);}
+        int handle = handles[slot];
+        slots_of_handles[handle] = -1;
+        if (free_handle_count == free_handles.length) {free_handles = Arrays.copyOf(free_handles, free_handle_count * 2);}
+        free_handles[free_handle_count++] = handle;
+        if (views[slot] != null) {views[slot].slot = -1;} //adopted views belong to another store
+    }
+
+    private void countSpecies(int species_id, int change) {
+        if (species_id >= species_counts.length) {species_counts = Arrays.copyOf(species_counts, species_id + 1);}
+        species_counts[species_id] += change;
+    }
+
+    //statistics of the genes of a species, made the first time one of its animals gets a gene
+    private TraitStats geneStats(int species_id) {
+        if (species_id >= gene_stats.length) {gene_stats = Arrays.copyOf(gene_stats, species_id + 1);}
+        if (gene_stats[species_id] == null) {gene_stats[species_id] = new TraitStats(GENE_BIN_WIDTH);}
+        return gene_stats[species_id];
+    }
+
+    private void grow() {
+        resize(views.length * 2);
+    }
+
+    private void resize(int capacity) {
+        views = Arrays.copyOf(views, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        radii = Arrays.copyOf(radii, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        species_ids = Arrays.copyOf(species_ids, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+        genes = Arrays.copyOf(genes, capacity);
+        food = Arrays.copyOf(food, capacity);
+        streams = Arrays.copyOf(streams, capacity);
+        gammas = Arrays.copyOf(gammas, capacity);
+        roles = Arrays.copyOf(roles, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+    }
+
+    //write every animal to a checkpoint, one column after another, only between steps
+    //the views are not written, they are made again from the species ids when it is read
+    public void write(CheckpointWriter out) throws IOException {
+        compact(); //nothing is freed between steps, but a removed animal must not be written
+        out.putInt(size);
+        out.putDoubles(xs, size);
+        out.putDoubles(ys, size);
+        out.putFloats(radii, size);
+        out.putInts(ages, size);
+        out.putInts(species_ids, size);
+        out.putBooleans(alive, size);
+        out.putDoubles(genes, size);
+        out.putInts(food, size);
+        out.putLongs(streams, size);
+        out.putLongs(gammas, size);
+        out.putBytes(roles, size);
+        //handles as they are, so the fields find the animals in the same order after reading
+        out.putInts(handles, size);
+        out.putInt(handle_count);
+        out.putInt(free_handle_count);
+        out.putInts(free_handles, free_handle_count);
+        //which species keep gene statistics, their statistics are counted again from the genes
+        out.putInt(gene_stats.length);
+        for (TraitStats stats : gene_stats) {out.putBoolean(stats != null);}
+    }
+
+    //replace all animals with the ones of a checkpoint written by write, the store is left empty if it cannot be read
+    //species_ids maps the species ids of the checkpoint to ids of this store's registry
+    public void read(CheckpointReader in, int[] species_ids) throws IOException {
+        clear();
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {throw new IOException("checkpoint holds a damaged number of animals: " + count);}
+        if (views.length < count) {resize(Math.max(count, views.length * 2));}
+        in.getDoubles(xs, count);
+        in.getDoubles(ys, count);
+        in.getFloats(radii, count);
+        in.getInts(ages, count);
+        in.getInts(this.species_ids, count);
+        in.getBooleans(alive, count);
+        in.getDoubles(genes, count);
+        in.getInts(food, count);
+        in.getLongs(streams, count);
+        in.getLongs(gammas, count);
+        in.getBytes(roles, count);
+        in.getInts(handles, count);
+        handle_count = in.getInt();
+        if (handle_count < count) {throw new IOException("checkpoint has fewer handles than animals");}
+        free_handle_count = in.getInt();
+        if (free_handle_count < 0 || free_handle_count > handle_count) {throw new IOException("checkpoint has a damaged list of free handles");}
+        if (free_handles.length < free_handle_count) {free_handles = new int[free_handle_count];}
+        in.getInts(free_handles, free_handle_count);
+        boolean[] has_genes = new boolean[Math.max(0, in.getInt())];
+        in.getBooleans(has_genes, has_genes.length);
+
+        for (int id = 0; id < has_genes.length; id++) {
+            if (has_genes[id] && id < species_ids.length) {geneStats(species_ids[id]);}
+        }
+        if (slots_of_handles.length < handle_count) {slots_of_handles = new int[handle_count];}
+        Arrays.fill(slots_of_handles, 0, handle_count, -1);
+        size = count;
+        try {
+            for (int slot = 0; slot < count; slot++) {
+                int saved_id = this.species_ids[slot];
+                if (saved_id < 0 || saved_id >= species_ids.length) {throw new IOException("checkpoint has an animal of unknown species " + saved_id);}
+                int species_id = species_ids[saved_id];
+                this.species_ids[slot] = species_id;
+                if ((gammas[slot] & 1) == 0) {throw new IOException("checkpoint has a damaged random stream at slot " + slot);} //gammas are odd
+                int handle = handles[slot];
+                if (handle < 0 || handle >= handle_count || slots_of_handles[handle] != -1) {throw new IOException("checkpoint has a damaged handle " + handle);}
+                slots_of_handles[handle] = slot;
+                countSpecies(species_id, 1);
+                TraitStats stats = getGeneStats(species_id);
+                if (stats != null) {stats.add(genes[slot]);}
+                views[slot] = species.viewOf(species_id, this, slot);
+            }
+            //a free handle that is live or listed twice would be given to two animals
+            for (int i = 0; i < free_handle_count; i++) {
+                int handle = free_handles[i];
+                if (handle < 0 || handle >= handle_count || slots_of_handles[handle] != -1) {throw new IOException("checkpoint has a damaged free handle " + handle);}
+                slots_of_handles[handle] = -2; //marks it as seen
+            }
+            for (int i = 0; i < free_handle_count; i++) {slots_of_handles[free_handles[i]] = -1;}
+        } catch (IOException | RuntimeException e) {
+            clear(); //rather empty than half read
+            throw e;
+        }
+    }
+
+    //getters
+    public int size() {return size;}
+    public SpeciesRegistry getSpecies() {return species;}
+    public Metrics getMetrics() {return metrics;}
+    public void setMetrics(Metrics metrics) {this.metrics = metrics;}
+    public Animal get(int slot) {return views[slot];}
+    public int getHandle(int slot) {return handles[slot];}
+    public int slotOf(int handle) {return slots_of_handles[handle];} //-1 if the handle is not in use
+    public int getHandleCount() {return handle_count;}
+    public double getX(int slot) {return xs[slot];}
+    public double getY(int slot) {return ys[slot];}
+    public double getRadius(int slot) {return radii[slot];}
+    public int getAge(int slot) {return ages[slot];}
+    public int getSpeciesId(int slot) {return species_ids[slot];}
+    public boolean isAlive(int slot) {return alive[slot];}
+    public double getGene(int slot) {return genes[slot];}
+    //animals of a species in the store, dead ones count until they are removed
+    public int getCount(int species_id) {return species_id < species_counts.length ? species_counts[species_id] : 0;}
+    //statistics of the genes of a species in the store, null if its animals have no gene
+    public TraitStats getGeneStats(int species_id) {return species_id < gene_stats.length ? gene_stats[species_id] : null;}
+}
@@ -0,0 +1,52 @@
+package Animals;
+
+import Field.*;
+
+//next step that is written straight into the next field, animals see everything done before them in the same step
+public class FieldStep implements NextStep {
+    private final AnimalStore store;
+    private Field current_field;
+    private Field next_field;
+
+    public FieldStep(AnimalStore store) {
+        this.store = store;
+    }
+
+    //set the fields of the step that is about to run
+    public void setFields(Field current_field, Field next_field) {
+        this.current_field = current_field;
+        this.next_field = next_field;
+    }
+
+    @Override
+    public AnimalStore getStore() {return store;}
+
+    @Override
+    public boolean isEmpty(double x, double y, double radius) {
+        return next_field.isEmpty(x, y, radius);
+    }
+
+    @Override
+    public boolean randomNearbyLocation(double x, double y, double spawn_radius, double free_radius, int tries, RandomStream rand, Vector2 result) {
+        return next_field.randomNearbyLocation(x, y, spawn_radius, free_radius, tries, rand, result);
+    }
+
+    @Override
+    public void put(Animal obj) {
+        next_field.put(obj);
+    }
+
+    @Override
+    public void move(Animal obj, double x, double y) {
+        current_field.remove(obj); //put it back at its new location, so animals later in the step find it there
+        store.xs[obj.slot] = x;
+        store.ys[obj.slot] = y;
+        current_field.put(obj);
+        next_field.put(obj);
+    }
+
+    @Override
+    public void kill(Animal hunter, Animal prey) {
+        prey.kill(Metrics.Cause.PREDATION);
+    }
+}
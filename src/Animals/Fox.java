@@ -2,44 +2,47 @@ package Animals;
 
 import Field.*;
 import java.awt.*;
-import java.util.List;
 
 
  //A simple model of a fox. Foxes age, move, chase rabbits, and die.
 public class Fox extends Animal{
-	//settings
-	private static int BREEDING_AGE = 3;  //age at which can breed
-	private static int MAX_AGE = 50;  //age at which it dies
-	private static double BREEDING_PROBABILITY = 0.15; //how likely to breed
-	private static int MAX_LITTER_SIZE = 6;   //max number of children at a time
-	private static int RABBIT_FOOD_VALUE = 6; //how much food a rabbit gives
-	private static double EATING_RANGE = 2.5; //How far a fox can reach
-	 private static double SPEED = 2; //how fast a fox is
-	 private Gene speed_gene;
-
-	// The fox's food level, which is increased by eating rabbits.
-	private int foodLevel;
+	//settings, one object per simulation so simulations can use different values
+	public static class Parameters {
+		public int breeding_age = 3;  //age at which can breed
+		public int max_age = 50;  //age at which it dies
+		public double breeding_probability = 0.15; //how likely to breed
+		public int max_litter_size = 6;   //max number of children at a time
+		public int rabbit_food_value = 6; //how much food a rabbit gives
+		public double eating_range = 2.5; //How far a fox can reach
+		public double speed = 2; //how fast a fox is
+	}
+	private static final Parameters DEFAULTS = new Parameters(); //used when a simulation sets none
+	 //the speed gene and the food level, which is increased by eating rabbits, are kept in the store
 
 
 	//create a new fox at a location, and if it should have a random age
-	public Fox(boolean startWithRandomAge, Vector2 location) {
-		super(location); //set location
-		speed_gene = new Gene(SPEED);//create new speed gene
+	public Fox(AnimalStore store, RandomStream rand, boolean startWithRandomAge, double x, double y) {
+		super(store, rand, x, y); //set location
+		Parameters p = parameters(DEFAULTS);
+		store.setGene(slot, p.speed);//new speed gene, starts at the speed of the species
 		if (startWithRandomAge) { //random start
-			setAge((int)(Math.random()*MAX_AGE));
-			foodLevel = (int)(Math.random()*RABBIT_FOOD_VALUE);
+			setAge(rand.nextInt(p.max_age));
+			setFoodLevel(rand.nextInt(p.rabbit_food_value));
 		} else {
-			foodLevel = RABBIT_FOOD_VALUE; //basic start
+			setFoodLevel(p.rabbit_food_value); //basic start
 		}
 	}
 	 //create a new baby fox from genes
-	 public Fox( Vector2 location, Gene parent_speed_gene) {
-		 super(location); //set location
-		 speed_gene = new Gene(parent_speed_gene,0.01);//create new speed gene
-		 setAge((int)(Math.random()*MAX_AGE));
-		 foodLevel = (int)(Math.random()*RABBIT_FOOD_VALUE);
+	 public Fox(AnimalStore store, RandomStream rand, double x, double y, double parent_speed_gene) {
+		 super(store, rand, x, y); //set location
+		 Parameters p = parameters(DEFAULTS);
+		 store.setGene(slot, Gene.mutate(parent_speed_gene,0.01,rand));//create new speed gene
+		 setAge(rand.nextInt(p.max_age));
+		 setFoodLevel(rand.nextInt(p.rabbit_food_value));
 
 	 }
+	//view of a fox already in a store
+	public Fox(AnimalStore store, int slot) {super(store, slot);}
 	@Override
 	public Color getColor() {
 		return new Color(155,100,0); //orange
@@ -48,55 +51,68 @@ public class Fox extends Animal{
 	public String getTypeName() {return "Fox";}
 
 	@Override
-	protected void performActions(Field current_field, Field updated_field, List<Animal> new_animals) {
+	protected void performActions(Field current_field, NextStep next_step, RandomStream rand) {
+			double x = getX();
+			double y = getY();
+			double radius = getRadius();
+			double speed = store.genes[slot];
+			Parameters p = parameters(DEFAULTS);
+			Vector2 spot = scratch(); //free spots are written here
 			// New foxes are born into nearby locations.
-			for (int b = 0; b <  breed(); b++) {
-				Vector2 baby_location= updated_field.randomNearbyLocation(location,radius*2,radius,100); //random location
-				if(baby_location == null){continue;} //no location found
-				Fox newFox = new Fox(baby_location, speed_gene);//create new fox
-				newFox.setFoodLevel(this.foodLevel); //set food
-				new_animals.add(newFox); //add
-				updated_field.put(newFox);
+			for (int b = 0; b <  breed(p, rand); b++) {
+				if(!next_step.randomNearbyLocation(x,y,radius*2,radius,100,rand,spot)){continue;} //no location found
+				Fox newFox = new Fox(next_step.getStore(), rand, spot.x, spot.y, speed);//create new fox
+				newFox.setFoodLevel(getFoodLevel()); //set food
+				next_step.put(newFox);
 			}
 			//location to move to
-			Vector2 new_location = null;
+			boolean found_location = false;
+			double new_x = 0, new_y = 0;
 
 
-			Animal closest_prey = current_field.closestAnimalOfType( location, "Rabbit"); //find the closest food
-			if(closest_prey != null && closest_prey.getLocation().distance(location) < EATING_RANGE){ //if food is in range
-				foodLevel = RABBIT_FOOD_VALUE; //get nutritional value
-				closest_prey.kill(); //kill animal
-				new_location = closest_prey.getLocation(); //go to their location
+			Animal closest_prey = current_field.closestAnimalOfType(x, y, Rabbit.class); //find the closest food
+			if(closest_prey != null && Vector2.distance(closest_prey.getX(), closest_prey.getY(), x, y) < p.eating_range){ //if food is in range
+				next_step.kill(this, closest_prey); //kill animal
+				setFoodLevel(p.rabbit_food_value); //get nutritional value
+				new_x = closest_prey.getX(); //go to their location
+				new_y = closest_prey.getY();
+				found_location = true;
 			}
-			if (new_location == null) { // no food in range
-				new_location = updated_field.randomNearbyLocation(location,speed_gene.getValue(),radius,100); //random direction
+			if (!found_location) { // no food in range
+				found_location = next_step.randomNearbyLocation(x,y,speed,radius,100,rand,spot); //random direction
+				new_x = spot.x;
+				new_y = spot.y;
 				if(closest_prey != null){ //if rabbits exist
-					Vector2 direction = closest_prey.getLocation().subtract(location).normalized(); //get direction
-					Vector2 location_in_direction = location.add(direction.multiply(new Vector2(speed_gene.getValue()))); //move toward rabbit
-					if (updated_field.isEmpty(location_in_direction,radius)) {new_location= location_in_direction;} //check if location is free
+					double direction_x = closest_prey.getX() - x; //get direction
+					double direction_y = closest_prey.getY() - y;
+					double length = Vector2.length(direction_x, direction_y);
+					double toward_x = x + direction_x / length * speed; //move toward rabbit
+					double toward_y = y + direction_y / length * speed;
+					if (next_step.isEmpty(toward_x,toward_y,radius)) {new_x = toward_x; new_y = toward_y; found_location = true;} //check if location is free
 				}
 			}
-			if (new_location != null) {this.location = new_location;updated_field.put(this);} //set location
-			else {kill();}//overcrowding
+			if (found_location) {next_step.move(this, new_x, new_y);} //set location
+			else {kill(Metrics.Cause.OVERCROWDING);}
 	}
 
 	@Override
 	protected void checkDeath() {
-		if (getAge() > MAX_AGE) { //increment age
-			kill();
+		if (getAge() > parameters(DEFAULTS).max_age) { //increment age
+			kill(Metrics.Cause.AGE);
 		}
 		//increment hunger
-		foodLevel--;
-		if (foodLevel <= 0) {
-			kill();
+		store.food[slot]--;
+		if (store.food[slot] <= 0) {
+			kill(Metrics.Cause.STARVATION);
 		}
 	}
 
 	//Generate a number representing the number of births, if it can breed.
-	private int breed() {
-		if (getAge() >= BREEDING_AGE && Math.random() <= BREEDING_PROBABILITY) {return  (int)(Math.random()*MAX_LITTER_SIZE) + 1;}
+	private int breed(Parameters p, RandomStream rand) {
+		if (getAge() >= p.breeding_age && rand.nextDouble() <= p.breeding_probability) {return  rand.nextInt(p.max_litter_size) + 1;}
 		return 0;
 	}
-	//set the food level
-	public void setFoodLevel(int fl) {this.foodLevel = fl;}
+	//get and set the food level
+	public int getFoodLevel() {return store.food[slot];}
+	public void setFoodLevel(int fl) {store.food[slot] = fl;}
 }
@@ -3,30 +3,35 @@ package Animals;
 import Field.*;
 
 import java.awt.*;
-import java.util.List;
 
 //class to represent a human
 // they hunt foxes, build houses to destroy environment
 public class Human extends Animal {
-    //overall stats
-    private static int BREEDING_AGE = 18; //age when can breed
-    public static int MAX_AGE = 100; //age until die
-    private static double BREEDING_PROBABILITY = 0.06; //self-explanatory
-    private static double BUILDER_PROBABILITY = 0.50; //probability to be a builder rather than hunter
-    private static double STRUCTURE_PROBABILITY = 0.10; //probability to build a structure
-    private static int MAX_CHILDREN = 1; //how many children can have at a time
-    private static double SPEED = 2.0; //how fast can move
-    private static double HUNTING_RANGE = 2.0; //how far can kill
-    private static double STRUCTURE_RANGE = 3.0;//how far can place structure
+    //overall stats, one object per simulation so simulations can use different values
+    public static class Parameters {
+        public int breeding_age = 18; //age when can breed
+        public int max_age = 100; //age until die
+        public double breeding_probability = 0.06; //self-explanatory
+        public double builder_probability = 0.50; //probability to be a builder rather than hunter
+        public double structure_probability = 0.10; //probability to build a structure
+        public int max_children = 1; //how many children can have at a time
+        public double speed = 2.0; //how fast can move
+        public double hunting_range = 2.0; //how far can kill
+        public double structure_range = 3.0;//how far can place structure
+    }
+    private static final Parameters DEFAULTS = new Parameters(); //used when a simulation sets none
 
-    private boolean builder; //is a builder or hunter
+    private static final byte BUILDER = 1; //role of builders in the store, hunters are 0
 
     //create a new human at location
-    public Human(boolean random_age, Vector2 location) {
-        super(location); //set location
-        if(random_age){setAge((int)(Math.random()*Human.MAX_AGE));} //random age
-        this.builder = Math.random() < BUILDER_PROBABILITY; //set if builder
+    public Human(AnimalStore store, RandomStream rand, boolean random_age, double x, double y) {
+        super(store, rand, x, y); //set location
+        Parameters p = parameters(DEFAULTS);
+        if(random_age){setAge(rand.nextInt(p.max_age));} //random age
+        if(rand.nextDouble() < p.builder_probability){store.roles[slot] = BUILDER;} //set if builder
     }
+    //view of a human already in a store
+    public Human(AnimalStore store, int slot) {super(store, slot);}
 
     @Override
     public String getTypeName() {return "Human";}
@@ -34,48 +39,55 @@ public class Human extends Animal {
     public Color getColor() {return new Color(255,0,0);}//red
 
     @Override
-    protected void performActions(Field current_field, Field next_field, List<Animal> new_animals) {
+    protected void performActions(Field current_field, NextStep next_step, RandomStream rand) {
+        double x = getX();
+        double y = getY();
+        double radius = getRadius();
+        Vector2 spot = scratch(); //free spots are written here
+        Parameters p = parameters(DEFAULTS);
         //create babies
-        for (int b = 0; b < breed(); b++) {
-            Vector2 baby_location = next_field.randomNearbyLocation(location,radius*2,radius,100);
-            if(baby_location == null){continue;}
-            Human baby_human = new Human(false,baby_location);
-            new_animals.add(baby_human);
-            next_field.put(baby_human);
+        for (int b = 0; b < breed(p, rand); b++) {
+            if(!next_step.randomNearbyLocation(x,y,radius*2,radius,100,rand,spot)){continue;}
+            Human baby_human = new Human(next_step.getStore(),rand,false,spot.x,spot.y);
+            next_step.put(baby_human);
         }
-        if(builder){ //is builder
-            if(Math.random() < STRUCTURE_PROBABILITY){     //create structure
-                Vector2 structure_location = next_field.randomNearbyLocation(location,STRUCTURE_RANGE,radius,100);
-                if(structure_location != null){ //found position
-                    Structure structure = new Structure(structure_location);
-                    new_animals.add(structure);
-                    next_field.put(structure);
+        if(store.roles[slot] == BUILDER){ //is builder
+            if(rand.nextDouble() < p.structure_probability){     //create structure
+                if(next_step.randomNearbyLocation(x,y,p.structure_range,radius,100,rand,spot)){ //found position
+                    Structure structure = new Structure(next_step.getStore(), rand, spot.x, spot.y);
+                    next_step.put(structure);
                 }
             }
             //move randomly
-            setLocation(next_field.randomNearbyLocation(location,SPEED,radius,100), next_field);
+            boolean found_location = next_step.randomNearbyLocation(x,y,p.speed,radius,100,rand,spot);
+            setLocation(found_location, spot.x, spot.y, next_step);
         }else{     //hunter
-            Vector2 new_location = null;
-            Animal nearest_prey = current_field.closestAnimalOfType(location, "Fox");
-            if(nearest_prey != null && nearest_prey.getLocation().distance(location) < HUNTING_RANGE){//nearest prey
-                new_location = nearest_prey.getLocation();
-                nearest_prey.kill(); //eat
+            boolean found_location = false;
+            double new_x = 0, new_y = 0;
+            Animal nearest_prey = current_field.closestAnimalOfType(x, y, Fox.class);
+            if(nearest_prey != null && Vector2.distance(nearest_prey.getX(), nearest_prey.getY(), x, y) < p.hunting_range){//nearest prey
+                new_x = nearest_prey.getX();
+                new_y = nearest_prey.getY();
+                found_location = true;
+                next_step.kill(this, nearest_prey); //eat
             }
-            if (new_location == null) { //no prey found
-                new_location = next_field.randomNearbyLocation(location,SPEED,radius,100); // move randomly
+            if (!found_location) { //no prey found
+                found_location = next_step.randomNearbyLocation(x,y,p.speed,radius,100,rand,spot); // move randomly
+                new_x = spot.x;
+                new_y = spot.y;
             }
-            setLocation(new_location, next_field);
+            setLocation(found_location, new_x, new_y, next_step);
         }
     }
     //set location and kill if overcrowded
-    private void setLocation(Vector2 new_location, Field next_field){
-        if (new_location != null) {this.location = new_location;next_field.put(this);}
-        else {kill();}//overcrowding
+    private void setLocation(boolean found_location, double new_x, double new_y, NextStep next_step){
+        if (found_location) {next_step.move(this, new_x, new_y);}
+        else {kill(Metrics.Cause.OVERCROWDING);}
     }
 
     @Override
-    protected void checkDeath() {if (getAge() > MAX_AGE) {kill();} }//check age
+    protected void checkDeath() {if (getAge() > parameters(DEFAULTS).max_age) {kill(Metrics.Cause.AGE);} }//check age
 
     //get number of children to make
-    private int breed() {if ( getAge() >= BREEDING_AGE && Math.random() <= BREEDING_PROBABILITY) {return (int)(Math.random()*MAX_CHILDREN) + 1;}return 0;}
+    private int breed(Parameters p, RandomStream rand) {if ( getAge() >= p.breeding_age && rand.nextDouble() <= p.breeding_probability) {return rand.nextInt(p.max_children) + 1;}return 0;}
 }
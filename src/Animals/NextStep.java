@@ -0,0 +1,25 @@
+package Animals;
+
+import Field.*;
+
+//what an animal can do to the next step of the simulation
+//the sequential simulator writes straight into the next field, the parallel one into a buffer per tile that is merged afterwards
+public interface NextStep {
+    //store new animals are created in
+    AnimalStore getStore();
+
+    //is a spot free in the next step
+    boolean isEmpty(double x, double y, double radius);
+
+    //find a random free spot nearby in the next step and write it into result, returns false if none was found
+    boolean randomNearbyLocation(double x, double y, double spawn_radius, double free_radius, int tries, RandomStream rand, Vector2 result);
+
+    //put an animal into the next step where it is, used for babies and animals that stay put
+    void put(Animal obj);
+
+    //move an animal to a location and put it into the next step
+    void move(Animal obj, double x, double y);
+
+    //hunter eats prey, call before changing the food level of the hunter so it can be undone if another hunter wins
+    void kill(Animal hunter, Animal prey);
+}
@@ -2,26 +2,30 @@ package Animals;
 
 import Field.*;
 import java.awt.*;
-import java.util.List;
 
  //A simple model of a rabbit.
  //Rabbits age, move, breed, and die.
 public class Rabbit extends Animal {
-    //settings
-	private static int BREEDING_AGE = 5;
-    private static int MAX_AGE = 30;
-    private static double BREEDING_PROBABILITY = 0.06;
-    private static int MAX_LITTER_SIZE = 5;
-    private static double SPEED = 2;
+    //settings, one object per simulation so simulations can use different values
+    public static class Parameters {
+        public int breeding_age = 5;
+        public int max_age = 30;
+        public double breeding_probability = 0.06;
+        public int max_litter_size = 5;
+        public double speed = 2;
+    }
+    private static final Parameters DEFAULTS = new Parameters(); //used when a simulation sets none
 
     //new rabbit at position
-    public Rabbit(boolean startWithRandomAge, Vector2 location)
+    public Rabbit(AnimalStore store, RandomStream rand, boolean startWithRandomAge, double x, double y)
     {
-        super(location); //set location
+        super(store, rand, x, y); //set location
         if(startWithRandomAge) {
-            setAge( (int)(Math.random()*MAX_AGE)); //random age
+            setAge(rand.nextInt(parameters(DEFAULTS).max_age)); //random age
         }
     }
+    //view of a rabbit already in a store
+    public Rabbit(AnimalStore store, int slot) {super(store, slot);}
     @Override
     public String getTypeName() {
         return "Rabbit";
@@ -31,33 +35,40 @@ public class Rabbit extends Animal {
     public Color getColor() {return new Color(100,100,100); }//grey
 
     @Override
-    protected void performActions(Field current_field, Field next_field, List<Animal> new_animals) {
-        for(int b = 0; b < breed(); b++) {
-            Vector2 baby_position = next_field.randomNearbyLocation(location,radius*2,radius,100);
-            if(baby_position == null){continue;} //no position found
-            Rabbit newRabbit = new Rabbit(false,baby_position); //create new rabbit
-            new_animals.add(newRabbit); //add
-            next_field.put(newRabbit);
+    protected void performActions(Field current_field, NextStep next_step, RandomStream rand) {
+        double x = getX();
+        double y = getY();
+        double radius = getRadius();
+        Vector2 spot = scratch(); //free spots are written here
+        Parameters p = parameters(DEFAULTS);
+        for(int b = 0; b < breed(p, rand); b++) {
+            if(!next_step.randomNearbyLocation(x,y,radius*2,radius,100,rand,spot)){continue;} //no position found
+            Rabbit newRabbit = new Rabbit(next_step.getStore(),rand,false,spot.x,spot.y); //create new rabbit
+            next_step.put(newRabbit);
         }
         //get nearest predator
-        Animal nearest_fox = current_field.closestAnimalOfType(location, "Fox");
-        Vector2 newLocation =  next_field.randomNearbyLocation(location,SPEED,radius,100);//random movement
+        Animal nearest_fox = current_field.closestAnimalOfType(x, y, Fox.class);
+        boolean found_location = next_step.randomNearbyLocation(x,y,p.speed,radius,100,rand,spot);//random movement
+        double new_x = spot.x, new_y = spot.y;
         if(nearest_fox != null){ //if there are predators
             //A->B   = (B-A).normalized  = formula for going toward or away direction
-            Vector2 direction = location.subtract(nearest_fox.getLocation()).normalized();// direction away from fox
-            Vector2 location_in_direction = location.add(direction.multiply(new Vector2(SPEED))); //get position in that direction
-            if (next_field.isEmpty(location_in_direction)) {newLocation= location_in_direction;} //is valid location
+            double direction_x = x - nearest_fox.getX(); // direction away from fox
+            double direction_y = y - nearest_fox.getY();
+            double length = Vector2.length(direction_x, direction_y);
+            double away_x = x + direction_x / length * p.speed; //get position in that direction
+            double away_y = y + direction_y / length * p.speed;
+            if (next_step.isEmpty(away_x, away_y, 0)) {new_x = away_x; new_y = away_y; found_location = true;} //is valid location
         }
         // Only transfer to the updated field if there was a free location
-        if(newLocation != null) {this.location =newLocation;next_field.put(this);}
-        else {kill();} //overcrowding
+        if(found_location) {next_step.move(this, new_x, new_y);}
+        else {kill(Metrics.Cause.OVERCROWDING);}
     }
 
     @Override
     protected void checkDeath() {
-        if(getAge() > MAX_AGE) {kill();}//check age
+        if(getAge() > parameters(DEFAULTS).max_age) {kill(Metrics.Cause.AGE);}//check age
     }
 
     // Generate a number representing the number of births,
-    private int breed() {if(getAge() >= BREEDING_AGE && Math.random() <= BREEDING_PROBABILITY) {return  (int)(Math.random()*MAX_LITTER_SIZE) + 1;}return 0;}
+    private int breed(Parameters p, RandomStream rand) {if(getAge() >= p.breeding_age && rand.nextDouble() <= p.breeding_probability) {return  rand.nextInt(p.max_litter_size) + 1;}return 0;}
 }
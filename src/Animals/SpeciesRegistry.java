@@ -0,0 +1,144 @@
+package Animals;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+//gives every kind of animal in a simulation a small integer id, so species can be told apart without comparing names
+//ids are handed out in order starting at 0, so they can be used to index arrays
+//everything known about a species is kept in arrays by id: its class, what makes it, its settings and its colour
+public class SpeciesRegistry {
+    private static final MethodType VIEW_CONSTRUCTOR = MethodType.methodType(void.class, AnimalStore.class, int.class);
+
+    private final ConcurrentHashMap<Class<? extends Animal>, Integer> ids_by_class = new ConcurrentHashMap<>();
+    private volatile Class<?>[] types = new Class<?>[0]; //class of each id
+    private volatile AnimalFactory[] factories = new AnimalFactory[0]; //what makes each id, bound the first time it is needed
+    private volatile Object[] parameters = new Object[0]; //settings of each id, null for the defaults of the species
+    private volatile int[] colors = new int[0]; //colour of each id as ARGB, 0 until an animal of it was looked at
+    private volatile MethodHandle[] view_constructors = new MethodHandle[0]; //makes a view of a stored animal of each id, bound the first time it is needed
+
+    //get the id of a species, giving it a new one if it does not have one yet
+    public int register(Class<? extends Animal> type) {
+        Integer id = ids_by_class.get(type);
+        if (id != null) {return id;}
+        synchronized (this) {
+            id = ids_by_class.get(type);
+            if (id != null) {return id;} //registered while waiting
+            id = types.length;
+            Class<?>[] new_types = Arrays.copyOf(types, id + 1);
+            new_types[id] = type;
+            factories = Arrays.copyOf(factories, id + 1);
+            parameters = Arrays.copyOf(parameters, id + 1);
+            colors = Arrays.copyOf(colors, id + 1);
+            view_constructors = Arrays.copyOf(view_constructors, id + 1);
+            types = new_types; //last, so every array is long enough for an id once it can be seen
+            ids_by_class.put(type, id);
+            return id;
+        }
+    }
+
+    //get the id of a species made by a factory, e.g. Rabbit::new
+    public synchronized int register(Class<? extends Animal> type, AnimalFactory factory) {
+        int id = register(type);
+        AnimalFactory[] new_factories = factories.clone();
+        new_factories[id] = factory;
+        factories = new_factories;
+        return id;
+    }
+
+    //get the id of a species, -1 if it is not registered
+    public int idOf(Class<? extends Animal> type) {
+        Integer id = ids_by_class.get(type);
+        return id == null ? -1 : id;
+    }
+
+    //get what makes animals of a species id, one calling its public constructor if none was registered
+    public AnimalFactory getFactory(int id) {
+        AnimalFactory factory = factories[id];
+        if (factory != null) {return factory;}
+        synchronized (this) {
+            if (factories[id] == null) {
+                AnimalFactory[] new_factories = factories.clone();
+                new_factories[id] = AnimalFactory.of(getType(id));
+                factories = new_factories;
+            }
+            return factories[id];
+        }
+    }
+
+    //make a view of an animal of a species id that is already in a store, for example one read from a checkpoint
+    //this calls the public (AnimalStore, int) constructor of the species, which only attaches the view to the slot
+    public Animal viewOf(int id, AnimalStore store, int slot) {
+        MethodHandle constructor = view_constructors[id];
+        if (constructor == null) {constructor = bindViewConstructor(id);}
+        try {
+            return (Animal) constructor.invokeExact(store, slot);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("could not make a view of a " + getType(id).getSimpleName(), e);
+        }
+    }
+
+    private synchronized MethodHandle bindViewConstructor(int id) {
+        if (view_constructors[id] == null) {
+            Class<? extends Animal> type = getType(id);
+            MethodHandle constructor;
+            try {
+                constructor = MethodHandles.publicLookup().findConstructor(type, VIEW_CONSTRUCTOR).asType(VIEW_CONSTRUCTOR.changeReturnType(Animal.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalArgumentException(type.getName() + " has no public constructor taking " + VIEW_CONSTRUCTOR.parameterList(), e);
+            }
+            MethodHandle[] new_constructors = view_constructors.clone();
+            new_constructors[id] = constructor;
+            view_constructors = new_constructors;
+        }
+        return view_constructors[id];
+    }
+
+    //give a species its own settings in this simulation, for example a Fox.Parameters, set before the first animal is made
+    public synchronized void setParameters(Class<? extends Animal> type, Object type_parameters) {
+        int id = register(type);
+        Object[] new_parameters = parameters.clone();
+        new_parameters[id] = type_parameters;
+        parameters = new_parameters;
+    }
+
+    //get the settings of a species id, null if it uses its defaults
+    public Object getParameters(int id) {
+        Object[] current = parameters;
+        return id < current.length ? current[id] : null;
+    }
+
+    //get the colour of a species id as ARGB, 0 if no animal of it was looked at yet
+    public int getColor(int id) {
+        int[] current = colors;
+        return id < current.length ? current[id] : 0;
+    }
+
+    //get the colour of the species of an animal, asking the animal the first time
+    public int colorOf(Animal animal) {
+        int id = animal.getSpecies();
+        int color = getColor(id);
+        if (color != 0) {return color;}
+        synchronized (this) {
+            int[] new_colors = colors.clone();
+            new_colors[id] = animal.getColor().getRGB(); //always opaque, so never 0
+            colors = new_colors;
+            return new_colors[id];
+        }
+    }
+
+    //number of registered species, all ids are below this
+    public int size() {
+        return types.length;
+    }
+
+    //get the class of a species id
+    @SuppressWarnings("unchecked")
+    public Class<? extends Animal> getType(int id) {
+        return (Class<? extends Animal>) types[id];
+    }
+}
@@ -2,7 +2,6 @@ package Animals;
 
 import Field.*;
 import java.awt.*;
-import java.util.List;
 
 //class to represent a human built object
 // does nothing, just takes up space
@@ -10,7 +9,9 @@ public class Structure extends Animal{
     private final static double RADIUS = 2.0; //how wide building is
 
     //create new structure at location
-    public Structure( Vector2 location) {super(location);setRadius(RADIUS);}
+    public Structure(AnimalStore store, RandomStream rand, double x, double y) {super(store, rand, x, y);setRadius(RADIUS);}
+    //view of a structure already in a store
+    public Structure(AnimalStore store, int slot) {super(store, slot);}
     @Override
     public Color getColor() {
         return new Color(0,255,0); //green
@@ -20,7 +21,7 @@ public class Structure extends Animal{
         return "Structure";
     }
     @Override
-    public void performActions(Field current_field, Field next_field, List<Animal> new_animals) {next_field.put(this);}
+    public void performActions(Field current_field, NextStep next_step, RandomStream rand) {next_step.put(this);}
     @Override
     protected void checkDeath() {}
 
@@ -0,0 +1,128 @@
+package Animals;
+
+import Field.*;
+
+import java.util.Arrays;
+
+//merges the buffers of all tiles into the next field once a parallel step is done
+//tiles are merged in tile order and entries in the order they were put, so the result does not depend on which thread ran which tile
+public class TileMerger {
+    private static final int PLACEMENT_TRIES = 100;
+
+    //what happens to an entry of the tile being merged
+    private static final byte PLACE = 0;
+    private static final byte SKIP = 1; //animal was eaten
+    private static final byte DISPLACE = 2; //spot was taken by another tile, find a new one after all tiles are merged
+
+    private final AnimalStore store;
+    private int[] eaten_by = new int[0]; //slot of the hunter that gets each prey, indexed by prey slot, -1 if none
+    private boolean[] lost_prey = new boolean[0]; //hunter lost its prey to another hunter, indexed by hunter slot
+    private byte[] verdicts = new byte[16];
+
+    //displaced entries, placed after all tiles
+    private Animal[] displaced = new Animal[16];
+    private double[] displaced_xs = new double[16];
+    private double[] displaced_ys = new double[16];
+    private byte[] displaced_kinds = new byte[16];
+    private int displaced_count = 0;
+
+    public TileMerger(AnimalStore store) {
+        this.store = store;
+    }
+
+    //apply everything the tiles did to the store and the next field
+    //rand is used to find new spots for displaced animals
+    public void merge(TileStep[] tiles, int tile_count, Field next_field, RandomStream rand) {
+        resolveKills(tiles, tile_count);
+        Vector2 spot = Animal.scratch();
+        for (int t = 0; t < tile_count; t++) {
+            TileStep tile = tiles[t];
+            //check the whole tile against earlier tiles before placing any of it, entries of one tile already avoid each other
+            if (verdicts.length < tile.entry_count) {verdicts = new byte[tile.entries.length];}
+            for (int e = 0; e < tile.entry_count; e++) {
+                Animal obj = tile.entries[e];
+                byte kind = tile.entry_kinds[e];
+                if (!obj.isAlive()) {verdicts[e] = SKIP;}
+                else if (kind == TileStep.STAY) {verdicts[e] = PLACE;} //animals that stay where they are keep their spot
+                else if (kind == TileStep.MOVE && lost_prey[obj.slot]) {verdicts[e] = DISPLACE;} //the winner gets the spot of the prey
+                else if (!next_field.isEmpty(tile.entry_xs[e], tile.entry_ys[e], obj.getRadius())) {verdicts[e] = DISPLACE;}
+                else {verdicts[e] = PLACE;}
+            }
+            for (int e = 0; e < tile.entry_count; e++) {
+                if (verdicts[e] == PLACE) {place(tile.entries[e], tile.entry_xs[e], tile.entry_ys[e], tile.entry_kinds[e], next_field);}
+                else if (verdicts[e] == DISPLACE) {addDisplaced(tile.entries[e], tile.entry_xs[e], tile.entry_ys[e], tile.entry_kinds[e]);}
+            }
+        }
+        //find new spots near where displaced animals wanted to go, animals without one die of overcrowding
+        for (int d = 0; d < displaced_count; d++) {
+            Animal obj = displaced[d];
+            double radius = obj.getRadius();
+            if (next_field.randomNearbyLocation(displaced_xs[d], displaced_ys[d], radius * 2, radius, PLACEMENT_TRIES, rand, spot)) {
+                place(obj, spot.x, spot.y, displaced_kinds[d], next_field);
+            } else if (displaced_kinds[d] != TileStep.BIRTH) {
+                obj.kill(Metrics.Cause.OVERCROWDING); //babies without a spot are never born
+            }
+            displaced[d] = null;
+        }
+        displaced_count = 0;
+        for (int t = 0; t < tile_count; t++) { //ready for the next step
+            TileStep tile = tiles[t];
+            for (int k = 0; k < tile.kill_count; k++) {
+                lost_prey[tile.hunters[k].slot] = false;
+                eaten_by[tile.eaten[k].slot] = -1;
+            }
+        }
+    }
+
+    //each prey goes to the hunter with the lowest slot, the others lose the food they would have got
+    private void resolveKills(TileStep[] tiles, int tile_count) {
+        if (eaten_by.length < store.size()) {
+            int old_length = eaten_by.length;
+            eaten_by = Arrays.copyOf(eaten_by, store.size() * 2);
+            lost_prey = Arrays.copyOf(lost_prey, store.size() * 2);
+            Arrays.fill(eaten_by, old_length, eaten_by.length, -1);
+        }
+        for (int t = 0; t < tile_count; t++) {
+            TileStep tile = tiles[t];
+            for (int k = 0; k < tile.kill_count; k++) {
+                int prey = tile.eaten[k].slot;
+                int hunter = tile.hunters[k].slot;
+                if (eaten_by[prey] == -1 || hunter < eaten_by[prey]) {eaten_by[prey] = hunter;}
+            }
+        }
+        for (int t = 0; t < tile_count; t++) {
+            TileStep tile = tiles[t];
+            for (int k = 0; k < tile.kill_count; k++) {
+                Animal hunter = tile.hunters[k];
+                if (eaten_by[tile.eaten[k].slot] == hunter.slot) {tile.eaten[k].kill(Metrics.Cause.PREDATION);}
+                else {
+                    store.food[hunter.slot] = tile.hunter_food[k];
+                    lost_prey[hunter.slot] = true;
+                }
+            }
+        }
+    }
+
+    //put an entry into the store and the next field
+    private void place(Animal obj, double x, double y, byte kind, Field next_field) {
+        if (kind == TileStep.BIRTH) {store.adopt(obj);}
+        store.xs[obj.slot] = x;
+        store.ys[obj.slot] = y;
+        next_field.put(obj);
+    }
+
+    private void addDisplaced(Animal obj, double x, double y, byte kind) {
+        if (displaced_count == displaced.length) {
+            int length = displaced_count * 2;
+            displaced = Arrays.copyOf(displaced, length);
+            displaced_xs = Arrays.copyOf(displaced_xs, length);
+            displaced_ys = Arrays.copyOf(displaced_ys, length);
+            displaced_kinds = Arrays.copyOf(displaced_kinds, length);
+        }
+        displaced[displaced_count] = obj;
+        displaced_xs[displaced_count] = x;
+        displaced_ys[displaced_count] = y;
+        displaced_kinds[displaced_count] = kind;
+        displaced_count++;
+    }
+}
@@ -0,0 +1,137 @@
+package Animals;
+
+import Field.*;
+
+import java.util.Arrays;
+
+//next step of the animals in one tile of the field, used by the parallel simulator
+//tiles run at the same time, so nothing an animal does is applied right away:
+//moves, babies and kills are kept here and merged into the next field by a TileMerger once all tiles are done
+public class TileStep implements NextStep {
+    //what an entry does in the next step
+    static final byte STAY = 0;
+    static final byte MOVE = 1;
+    static final byte BIRTH = 2;
+
+    private final AnimalStore store; //store of the simulation
+    private final AnimalStore nursery; //babies born in this tile wait here until they are merged
+    private final SpatialIndex placed = new KdTreeIndex(); //entries of this tile, to keep them from overlapping each other
+    private final OccupancyRaster raster = new OccupancyRaster(); //free space of the search area of randomNearbyLocation
+    private Field next_field;
+
+    //animals put into the next step, in the order they were put
+    Animal[] entries = new Animal[16];
+    double[] entry_xs = new double[16];
+    double[] entry_ys = new double[16];
+    byte[] entry_kinds = new byte[16];
+    int entry_count = 0;
+
+    //prey eaten in this tile, and the food level each hunter had before eating
+    Animal[] hunters = new Animal[4];
+    Animal[] eaten = new Animal[4];
+    int[] hunter_food = new int[4];
+    int kill_count = 0;
+
+    public TileStep(AnimalStore store) {
+        this.store = store;
+        this.nursery = new AnimalStore(store.getSpecies());
+    }
+
+    //empty the buffer for a new step
+    public void reset(Field next_field) {
+        this.next_field = next_field;
+        Arrays.fill(entries, 0, entry_count, null);
+        Arrays.fill(hunters, 0, kill_count, null);
+        Arrays.fill(eaten, 0, kill_count, null);
+        entry_count = 0;
+        kill_count = 0;
+        placed.clear();
+        nursery.clear();
+    }
+
+    @Override
+    public AnimalStore getStore() {return nursery;}
+
+    @Override
+    public boolean isEmpty(double x, double y, double radius) {
+        Metrics metrics = store.getMetrics();
+        if (metrics != null) {metrics.count(Metrics.Count.EMPTY_QUERIES);}
+        return isFree(x, y, radius);
+    }
+
+    private boolean isFree(double x, double y, double radius) {
+        return next_field.isLegalLocation(x, y) && !placed.overlapsAny(x, y, radius); //only this tile is known until the merge
+    }
+
+    @Override
+    public boolean randomNearbyLocation(double x, double y, double spawn_radius, double free_radius, int tries, RandomStream rand, Vector2 result) {
+        int quick_tries = Math.min(tries, OccupancyRaster.QUICK_TRIES); //same search as Field.randomNearbyLocation
+        for (int i = 0; i < quick_tries; i++) {
+            double potential_x = x + (rand.nextDouble() - 0.5) * spawn_radius;
+            double potential_y = y + (rand.nextDouble() - 0.5) * spawn_radius;
+            if (isFree(potential_x, potential_y, free_radius)) {
+                result.set(potential_x, potential_y);
+                countSearch(i + 1, true);
+                return true;
+            }
+        }
+        if (tries == quick_tries) {
+            countSearch(tries, false);
+            return false;
+        }
+        raster.begin(x, y, spawn_radius, free_radius, tries - quick_tries, rand);
+        raster.blockOutside(next_field.getWidth(), next_field.getHeight());
+        placed.visitOverlapping(raster.getCenterX(), raster.getCenterY(), raster.getReach(), raster);
+        boolean found = raster.pick(rand, result);
+        countSearch(quick_tries + raster.size(), found);
+        return found;
+    }
+
+    private void countSearch(int attempts, boolean found) {
+        Metrics metrics = store.getMetrics();
+        if (metrics == null) {return;}
+        metrics.count(Metrics.Count.NEARBY_SEARCHES);
+        metrics.count(Metrics.Count.NEARBY_ATTEMPTS, attempts);
+        if (!found) {metrics.count(Metrics.Count.NEARBY_FAILURES);}
+    }
+
+    @Override
+    public void put(Animal obj) {
+        add(obj, obj.getX(), obj.getY(), obj.store == nursery ? BIRTH : STAY);
+    }
+
+    @Override
+    public void move(Animal obj, double x, double y) {
+        add(obj, x, y, MOVE); //the store keeps the old location so other tiles still see it there
+    }
+
+    @Override
+    public void kill(Animal hunter, Animal prey) {
+        if (kill_count == hunters.length) {
+            int length = kill_count * 2;
+            hunters = Arrays.copyOf(hunters, length);
+            eaten = Arrays.copyOf(eaten, length);
+            hunter_food = Arrays.copyOf(hunter_food, length);
+        }
+        hunters[kill_count] = hunter;
+        eaten[kill_count] = prey;
+        hunter_food[kill_count] = store.food[hunter.slot];
+        kill_count++;
+    }
+
+    private void add(Animal obj, double x, double y, byte kind) {
+        if (entry_count == entries.length) {
+            int length = entry_count * 2;
+            entries = Arrays.copyOf(entries, length);
+            entry_xs = Arrays.copyOf(entry_xs, length);
+            entry_ys = Arrays.copyOf(entry_ys, length);
+            entry_kinds = Arrays.copyOf(entry_kinds, length);
+        }
+        entries[entry_count] = obj;
+        entry_xs[entry_count] = x;
+        entry_ys[entry_count] = y;
+        entry_kinds[entry_count] = kind;
+        placed.insert(entry_count, x, y, obj.getRadius());
+        entry_count++;
+    }
+}
@@ -0,0 +1,37 @@
+package Benchmarks;
+
+import Animals.*;
+import Field.RandomStream;
+
+//measures how many bytes of heap each animal takes in an AnimalStore
+//run with: java -cp out:lib/corev3.jar Benchmarks.AnimalFootprintBenchmark
+public class AnimalFootprintBenchmark {
+    private static final int ANIMALS = 1000000;
+
+    public static void main(String[] args) {
+        long before = usedHeap();
+        AnimalStore store = new AnimalStore(new SpeciesRegistry());
+        RandomStream rand = new RandomStream(42);
+        for (int i = 0; i < ANIMALS; i++) { //same mix as the default simulation, two rabbits for every fox
+            if (i % 3 == 0) {new Fox(store, rand, true, i % 100, i / 10000.0);}
+            else {new Rabbit(store, rand, true, i % 100, i / 10000.0);}
+        }
+        long after = usedHeap();
+        System.out.printf("%d animals, %.1f bytes per animal%n", store.size(), (after - before) / (double) store.size());
+
+        //walk every slot once so the measurement also shows the cost of a full pass
+        long start = System.nanoTime();
+        double sum = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int slot = 0; slot < store.size(); slot++) {sum += store.getX(slot) + store.getAge(slot);}
+        }
+        System.out.printf("full pass: %.2f ms (checksum %.0f)%n", (System.nanoTime() - start) / 1e6 / 10, sum);
+    }
+
+    //heap in use after collecting garbage
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {System.gc();}
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
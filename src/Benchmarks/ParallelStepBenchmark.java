@@ -0,0 +1,44 @@
+package Benchmarks;
+
+import Animals.*;
+import Simulator.Simulator;
+
+//measures steps per second of a large simulation for different numbers of threads
+//run with: java -cp out:lib/corev3.jar Benchmarks.ParallelStepBenchmark [size] [steps] [max threads]
+public class ParallelStepBenchmark {
+    private static final int DEFAULT_SIZE = 400; //width and height of the field
+    private static final int DEFAULT_STEPS = 50;
+    private static final int WARMUP_STEPS = 10;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_STEPS;
+        int max_threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        System.out.printf("%8s %12s %12s%n", "threads", "steps/s", "animals");
+        for (int threads = 1; threads <= max_threads; threads *= 2) {
+            run(size, steps, threads);
+        }
+        if (Integer.bitCount(max_threads) != 1) {run(size, steps, max_threads);} //also measure every core
+    }
+
+    //run a fresh simulation, 1 thread is the sequential step
+    private static void run(int size, int steps, int threads) {
+        Simulator simulator = new Simulator(size, size, size * size);
+        simulator.addAnimal(Rabbit.class, 0.08);
+        simulator.addAnimal(Fox.class, 0.04);
+        simulator.addAnimal(Human.class, 0.0005);
+        simulator.setThreads(threads);
+        simulator.populate();
+        for (int i = 0; i < WARMUP_STEPS; i++) {simulator.simulateOneStep();}
+
+        long animal_steps = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++) {
+            animal_steps += simulator.getAnimals().size();
+            simulator.simulateOneStep();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%8d %12.1f %12d%n", threads, steps / seconds, animal_steps / steps);
+        simulator.setThreads(1); //stop the threads
+    }
+}
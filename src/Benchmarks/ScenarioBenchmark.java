@@ -0,0 +1,227 @@
+package Benchmarks;
+
+import Animals.*;
+import Simulator.Simulator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//runs whole simulations with fixed seeds and reports how fast they run and how much memory they need
+//results are written as CSV and compared with a baseline file from an earlier run, regressions make the exit code 1
+//run with: java -cp out:lib/corev3.jar Benchmarks.ScenarioBenchmark [--steps 500] [--size 150] [--out scenarios.csv]
+//[--baseline baseline.csv] [--tolerance 0.1], a baseline that does not exist yet is written from this run
+public class ScenarioBenchmark {
+    private static final int DEFAULT_STEPS = 500;
+    private static final int DEFAULT_SIZE = 150;
+    private static final double DEFAULT_TOLERANCE = 0.1; //fraction a metric may get worse before it counts as a regression
+    private static final long SEED = 42;
+    private static final int WARMUP_STEPS = 20; //run on a separate simulation so the measured one starts from step 0
+    private static final int HEAP_SAMPLES = 10; //live heap is measured this many times over a run
+
+    private static final String HEADER = "scenario,steps,final_animals,final_structures,wall_s,steps_per_s,late_steps_per_s,bytes_per_step,peak_live_heap";
+
+    //a fixed simulation to measure
+    private static class Scenario {
+        final String name;
+        final Class<?>[] types;
+        final double[] probabilities;
+
+        Scenario(String name, Class<?>[] types, double[] probabilities) {
+            this.name = name;
+            this.types = types;
+            this.probabilities = probabilities;
+        }
+
+        Simulator create(int size) {
+            Simulator simulator = new Simulator(size, size, size * size);
+            for (int i = 0; i < types.length; i++) {simulator.addAnimal(types[i].asSubclass(Animal.class), probabilities[i]);}
+            simulator.getSpecies().register(Structure.class); //so structures can be counted in every scenario
+            simulator.setSeed(SEED);
+            simulator.populate();
+            return simulator;
+        }
+    }
+
+    private static final Scenario[] SCENARIOS = {
+            new Scenario("rabbits", new Class<?>[]{Rabbit.class}, new double[]{0.08}),
+            new Scenario("foxes_rabbits", new Class<?>[]{Rabbit.class, Fox.class}, new double[]{0.08, 0.04}),
+            //structures built by humans pile up over the run, late_steps_per_s shows how much they slow it down
+            new Scenario("all_species", new Class<?>[]{Rabbit.class, Fox.class, Human.class}, new double[]{0.08, 0.04, 0.0005}),
+    };
+
+    //what one scenario measured
+    private static class Result {
+        String scenario;
+        int steps;
+        int final_animals;
+        int final_structures;
+        double wall_s;
+        double steps_per_s;
+        double late_steps_per_s; //last quarter of the steps only
+        double bytes_per_step;
+        long peak_live_heap;
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%d,%.3f,%.2f,%.2f,%.0f,%d", scenario, steps, final_animals, final_structures,
+                    wall_s, steps_per_s, late_steps_per_s, bytes_per_step, peak_live_heap);
+        }
+
+        static Result fromCsv(String line) {
+            String[] cells = line.split(",");
+            Result result = new Result();
+            result.scenario = cells[0];
+            result.steps = Integer.parseInt(cells[1]);
+            result.final_animals = Integer.parseInt(cells[2]);
+            result.final_structures = Integer.parseInt(cells[3]);
+            result.wall_s = Double.parseDouble(cells[4]);
+            result.steps_per_s = Double.parseDouble(cells[5]);
+            result.late_steps_per_s = Double.parseDouble(cells[6]);
+            result.bytes_per_step = Double.parseDouble(cells[7]);
+            result.peak_live_heap = Long.parseLong(cells[8]);
+            return result;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int steps = DEFAULT_STEPS;
+        int size = DEFAULT_SIZE;
+        String out = null;
+        String baseline = null;
+        double tolerance = DEFAULT_TOLERANCE;
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("missing value for " + args[args.length - 1]);
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--steps": steps = Integer.parseInt(value); break;
+                case "--size": size = Integer.parseInt(value); break;
+                case "--out": out = value; break;
+                case "--baseline": baseline = value; break;
+                case "--tolerance": tolerance = Double.parseDouble(value); break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        System.out.println(HEADER);
+        for (Scenario scenario : SCENARIOS) {
+            Result result = run(scenario, size, steps);
+            results.add(result);
+            System.out.println(result.toCsv());
+        }
+        if (out != null) {write(out, results);}
+
+        if (baseline == null) {return;}
+        if (!new File(baseline).exists()) {
+            write(baseline, results);
+            System.err.println("no baseline yet, wrote " + baseline);
+            return;
+        }
+        if (compare(read(baseline), results, tolerance) > 0) {System.exit(1);}
+    }
+
+    //run one scenario from the start, only the steps themselves are timed
+    private static Result run(Scenario scenario, int size, int steps) {
+        Simulator warmup = scenario.create(size);
+        for (int i = 0; i < WARMUP_STEPS; i++) {warmup.simulateOneStep();}
+
+        Simulator simulator = scenario.create(size);
+        int structure_id = simulator.getSpecies().register(Structure.class);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread_id = Thread.currentThread().getId();
+        int sample_every = Math.max(1, steps / HEAP_SAMPLES);
+        int late_start = steps - Math.max(1, steps / 4);
+
+        Result result = new Result();
+        result.scenario = scenario.name;
+        result.peak_live_heap = liveHeap();
+        long allocated = 0;
+        long nanos = 0;
+        long late_nanos = 0;
+        for (int i = 0; i < steps; i++) {
+            long allocated_before = threads.getThreadAllocatedBytes(thread_id);
+            long start = System.nanoTime();
+            simulator.simulateOneStep();
+            long time = System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(thread_id) - allocated_before;
+            nanos += time;
+            if (i >= late_start) {late_nanos += time;}
+            if ((i + 1) % sample_every == 0) {result.peak_live_heap = Math.max(result.peak_live_heap, liveHeap());}
+        }
+        result.steps = steps;
+        result.final_animals = simulator.getAnimals().size();
+        result.final_structures = simulator.getStats().getCount(structure_id);
+        result.wall_s = nanos / 1e9;
+        result.steps_per_s = steps / result.wall_s;
+        result.late_steps_per_s = (steps - late_start) / (late_nanos / 1e9);
+        result.bytes_per_step = allocated / (double) steps;
+        return result;
+    }
+
+    //report every metric that got worse than the baseline by more than the tolerance, returns how many did
+    private static int compare(Map<String, Result> baseline, List<Result> results, double tolerance) {
+        int regressions = 0;
+        for (Result result : results) {
+            Result old = baseline.get(result.scenario);
+            if (old == null) {
+                System.err.println(result.scenario + ": not in baseline");
+                continue;
+            }
+            if (old.steps != result.steps || old.final_animals != result.final_animals) {
+                //same seed but a different end state, the simulation itself changed so timings are not comparable one to one
+                System.err.printf("%s: simulation differs from baseline (%d animals after %d steps, was %d after %d)%n",
+                        result.scenario, result.final_animals, result.steps, old.final_animals, old.steps);
+            }
+            regressions += check(result.scenario, "steps_per_s", old.steps_per_s, result.steps_per_s, false, tolerance);
+            regressions += check(result.scenario, "late_steps_per_s", old.late_steps_per_s, result.late_steps_per_s, false, tolerance);
+            regressions += check(result.scenario, "bytes_per_step", old.bytes_per_step, result.bytes_per_step, true, tolerance);
+            regressions += check(result.scenario, "peak_live_heap", old.peak_live_heap, result.peak_live_heap, true, tolerance);
+        }
+        System.err.println(regressions == 0 ? "no regressions" : regressions + " regressions");
+        return regressions;
+    }
+
+    private static int check(String scenario, String metric, double old, double now, boolean lower_is_better, double tolerance) {
+        double change = old == 0 ? 0 : (now - old) / old;
+        boolean worse = lower_is_better ? change > tolerance : change < -tolerance;
+        System.err.printf("%-16s %-18s %14.1f -> %14.1f %+7.1f%%%s%n", scenario, metric, old, now, change * 100, worse ? "  REGRESSION" : "");
+        return worse ? 1 : 0;
+    }
+
+    private static void write(String path, List<Result> results) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(path))) {
+            writer.println(HEADER);
+            for (Result result : results) {writer.println(result.toCsv());}
+        }
+    }
+
+    private static Map<String, Result> read(String path) throws IOException {
+        Map<String, Result> results = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            reader.readLine(); //header
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty()) {continue;}
+                Result result = Result.fromCsv(line);
+                results.put(result.scenario, result);
+            }
+        }
+        return results;
+    }
+
+    //heap in use after collecting garbage
+    private static long liveHeap() {
+        for (int i = 0; i < 3; i++) {System.gc();}
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
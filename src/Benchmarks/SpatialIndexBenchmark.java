@@ -0,0 +1,100 @@
+package Benchmarks;
+
+import Field.SpatialIndex;
+
+import java.util.Random;
+
+//measures queries per second of every spatial index type for fields of different density
+//run with: java -cp out:lib/corev3.jar Benchmarks.SpatialIndexBenchmark
+public class SpatialIndexBenchmark {
+    private static final double WIDTH = 100;
+    private static final double HEIGHT = 100;
+    private static final int[] DENSITIES = {100, 1000, 10000, 50000}; //entries in the field
+    private static final int QUERIES = 200000; //queries per measurement
+    private static final double STRUCTURE_SHARE = 0.05; //share of large entries
+    private static final long SEED = 42;
+
+    public static void main(String[] args) {
+        System.out.printf("%-16s %8s %10s %14s %14s %14s%n", "index", "entries", "clumped", "inserts/s", "nearest/s", "overlap/s");
+        for (int density : DENSITIES) {
+            for (boolean clumped : new boolean[]{false, true}) {
+                for (SpatialIndex.Type type : SpatialIndex.Type.values()) {
+                    run(type, density, clumped);
+                }
+            }
+        }
+    }
+
+    //fill an index, then time nearest and overlap queries at random points
+    private static void run(SpatialIndex.Type type, int density, boolean clumped) {
+        Random rand = new Random(SEED);
+        double[] xs = new double[density];
+        double[] ys = new double[density];
+        double[] radii = new double[density];
+        for (int i = 0; i < density; i++) {
+            if (clumped) { //a few tight clusters, like structures around humans
+                double cx = (i % 8) * WIDTH / 8 + WIDTH / 16;
+                double cy = ((i / 8) % 8) * HEIGHT / 8 + HEIGHT / 16;
+                xs[i] = clamp(cx + rand.nextGaussian() * 2, WIDTH);
+                ys[i] = clamp(cy + rand.nextGaussian() * 2, HEIGHT);
+            } else {
+                xs[i] = rand.nextDouble() * WIDTH;
+                ys[i] = rand.nextDouble() * HEIGHT;
+            }
+            radii[i] = rand.nextDouble() < STRUCTURE_SHARE ? 2.0 : 1.0;
+        }
+        double[] query_xs = new double[QUERIES];
+        double[] query_ys = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            query_xs[i] = rand.nextDouble() * WIDTH;
+            query_ys[i] = rand.nextDouble() * HEIGHT;
+        }
+
+        SpatialIndex index = type.create(WIDTH, HEIGHT);
+        //warm up so the JIT has compiled the query code before measuring
+        for (int round = 0; round < 3; round++) {
+            fill(index, xs, ys, radii);
+            nearest(index, query_xs, query_ys, QUERIES / 10);
+            overlap(index, query_xs, query_ys, QUERIES / 10);
+        }
+
+        long start = System.nanoTime();
+        fill(index, xs, ys, radii);
+        double insert_rate = density / seconds(start);
+
+        start = System.nanoTime();
+        long checksum = nearest(index, query_xs, query_ys, QUERIES);
+        double nearest_rate = QUERIES / seconds(start);
+
+        start = System.nanoTime();
+        checksum += overlap(index, query_xs, query_ys, QUERIES);
+        double overlap_rate = QUERIES / seconds(start);
+
+        System.out.printf("%-16s %8d %10b %14.0f %14.0f %14.0f   (checksum %d)%n",
+                type, density, clumped, insert_rate, nearest_rate, overlap_rate, checksum);
+    }
+
+    private static void fill(SpatialIndex index, double[] xs, double[] ys, double[] radii) {
+        index.clear();
+        for (int i = 0; i < xs.length; i++) {index.insert(i, xs[i], ys[i], radii[i]);}
+    }
+
+    //results are summed so the JIT cannot drop the queries
+    private static long nearest(SpatialIndex index, double[] xs, double[] ys, int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {sum += index.nearest(xs[i], ys[i], null);}
+        return sum;
+    }
+    private static long overlap(SpatialIndex index, double[] xs, double[] ys, int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {if (index.overlapsAny(xs[i], ys[i], 1.0)) {sum++;}}
+        return sum;
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.min(Math.max(value, 0.001), max - 0.001);
+    }
+    private static double seconds(long start) {
+        return (System.nanoTime() - start) / 1e9;
+    }
+}
@@ -0,0 +1,83 @@
+package Field;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//reads a checkpoint file written by a CheckpointWriter, through a memory mapping of the whole file
+//arrays are copied straight out of the mapping in bulk, the operating system pages the file in as it is read
+//a file that ends too early gives an IOException instead of garbage
+public class CheckpointReader {
+    private final MappedByteBuffer buffer;
+
+    //map a file, it has to be smaller than 2 GB
+    public CheckpointReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {throw new IOException(path + " is too large to be a checkpoint");}
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); //stays valid once the channel is closed
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int getInt() throws IOException {need(1, Integer.BYTES); return buffer.getInt();}
+    public long getLong() throws IOException {need(1, Long.BYTES); return buffer.getLong();}
+    public double getDouble() throws IOException {need(1, Double.BYTES); return buffer.getDouble();}
+    public boolean getBoolean() throws IOException {need(1, 1); return buffer.get() != 0;}
+
+    //a string written by putString
+    public String getString() throws IOException {
+        int length = getInt();
+        byte[] bytes = new byte[Math.max(0, length)];
+        getBytes(bytes, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //read count values into the start of an array
+    public void getDoubles(double[] values, int count) throws IOException {
+        need(count, Double.BYTES);
+        buffer.asDoubleBuffer().get(values, 0, count);
+        buffer.position(buffer.position() + count * Double.BYTES);
+    }
+
+    public void getFloats(float[] values, int count) throws IOException {
+        need(count, Float.BYTES);
+        buffer.asFloatBuffer().get(values, 0, count);
+        buffer.position(buffer.position() + count * Float.BYTES);
+    }
+
+    public void getInts(int[] values, int count) throws IOException {
+        need(count, Integer.BYTES);
+        buffer.asIntBuffer().get(values, 0, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+    }
+
+    public void getLongs(long[] values, int count) throws IOException {
+        need(count, Long.BYTES);
+        buffer.asLongBuffer().get(values, 0, count);
+        buffer.position(buffer.position() + count * Long.BYTES);
+    }
+
+    public void getBytes(byte[] values, int count) throws IOException {
+        need(count, 1);
+        buffer.get(values, 0, count);
+    }
+
+    public void getBooleans(boolean[] values, int count) throws IOException {
+        need(count, 1);
+        for (int i = 0; i < count; i++) {values[i] = buffer.get() != 0;}
+    }
+
+    //bytes not read yet
+    public int remaining() {return buffer.remaining();}
+
+    //make sure count values of a size are left
+    private void need(int count, int size) throws IOException {
+        if (count < 0 || (long) count * size > buffer.remaining()) {
+            throw new IOException("checkpoint ends early or is damaged at byte " + buffer.position());
+        }
+    }
+}
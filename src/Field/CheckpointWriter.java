@@ -0,0 +1,116 @@
+package Field;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//writes a checkpoint file through a file channel, values go into one direct buffer that is written out whenever it is full
+//arrays are copied into the buffer in bulk, so saving millions of animals takes a few large writes
+//everything is little endian whatever the machine, so a checkpoint can be read back anywhere
+public class CheckpointWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    //start a new file, replacing one that is already there
+    public CheckpointWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public void putInt(int value) throws IOException {room(Integer.BYTES); buffer.putInt(value);}
+    public void putLong(long value) throws IOException {room(Long.BYTES); buffer.putLong(value);}
+    public void putDouble(double value) throws IOException {room(Double.BYTES); buffer.putDouble(value);}
+    public void putBoolean(boolean value) throws IOException {room(1); buffer.put(value ? (byte) 1 : 0);}
+
+    //length and then the UTF-8 bytes of a string
+    public void putString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        putBytes(bytes, bytes.length);
+    }
+
+    //the first count values of an array, without their length
+    public void putDoubles(double[] values, int count) throws IOException {
+        for (int done = 0; done < count; ) {
+            int n = chunk(count - done, Double.BYTES);
+            buffer.asDoubleBuffer().put(values, done, n);
+            buffer.position(buffer.position() + n * Double.BYTES);
+            done += n;
+        }
+    }
+
+    public void putFloats(float[] values, int count) throws IOException {
+        for (int done = 0; done < count; ) {
+            int n = chunk(count - done, Float.BYTES);
+            buffer.asFloatBuffer().put(values, done, n);
+            buffer.position(buffer.position() + n * Float.BYTES);
+            done += n;
+        }
+    }
+
+    public void putInts(int[] values, int count) throws IOException {
+        for (int done = 0; done < count; ) {
+            int n = chunk(count - done, Integer.BYTES);
+            buffer.asIntBuffer().put(values, done, n);
+            buffer.position(buffer.position() + n * Integer.BYTES);
+            done += n;
+        }
+    }
+
+    public void putLongs(long[] values, int count) throws IOException {
+        for (int done = 0; done < count; ) {
+            int n = chunk(count - done, Long.BYTES);
+            buffer.asLongBuffer().put(values, done, n);
+            buffer.position(buffer.position() + n * Long.BYTES);
+            done += n;
+        }
+    }
+
+    public void putBytes(byte[] values, int count) throws IOException {
+        for (int done = 0; done < count; ) {
+            int n = chunk(count - done, 1);
+            buffer.put(values, done, n);
+            done += n;
+        }
+    }
+
+    //one byte each, 1 for true
+    public void putBooleans(boolean[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (!buffer.hasRemaining()) {flush();}
+            buffer.put(values[i] ? (byte) 1 : 0);
+        }
+    }
+
+    //write out what is in the buffer and close the file
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    //how many of the wanted values of a size fit in the buffer, writing it out first if not even one does
+    private int chunk(int wanted, int size) throws IOException {
+        room(size);
+        return Math.min(wanted, buffer.remaining() / size);
+    }
+
+    //make sure the buffer has room for a number of bytes
+    private void room(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {flush();}
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {channel.write(buffer);}
+        buffer.clear();
+    }
+}
@@ -15,16 +15,20 @@ public class Counter
     // A name for this type of simulation participant
     private String name;
 		private Class animalClass;
+    // Species id of this type, used to index arrays of species
+    private int species;
 		
     // How many of this type exist in the simulation.
     private int count;
 
     /**
      * Provide a name for one of the simulation types.
+     * @param species  the species id of the type.
      * @param animalClass  the class name for an animal type, e.g. "Animals.Fox".
      */
-    public Counter(Class animalClass)
+    public Counter(int species, Class animalClass)
     {
+    		this.species = species;
     		this.animalClass = animalClass;
         this.name = animalClass.getName();
         count = 0;
@@ -54,6 +58,14 @@ public class Counter
         count++;
     }
     
+    /**
+     * Set the current count.
+     */
+    public void setCount(int count)
+    {
+        this.count = count;
+    }
+
     /**
      * Reset the current count to zero.
      */
@@ -64,9 +76,15 @@ public class Counter
 
     /**
      * @return the class name of the type of object for this counter.
-     * These are used as keys in colorMap Hashmaps
      */
 		public Class getClassName() {
 			return animalClass;
 		}
+
+    /**
+     * @return the species id of this counter, used as the series of the graph.
+     */
+    public int getSpecies() {
+        return species;
+    }
 }
@@ -1,13 +1,10 @@
 package Field;
 
 import Animals.Animal;
+import Animals.SpeciesRegistry;
 
-import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Random;
+import java.util.Arrays;
 
 /**
  * Represent a rectangular grid filled with animals of arbitrary positions using a floating point coordinate system
@@ -15,9 +12,7 @@ import java.util.Random;
  * @author David J. Barnes and Michael Kolling. Modified by David Dobervich
  *         2007-2022. Modified by Philip Prager
  */
-public class Field implements Serializable {
-
-	private static final Random rand = new Random();
+public class Field {
 
 	// The height and width of the field.
 	private Vector2 dimensions;
@@ -31,124 +26,221 @@ public class Field implements Serializable {
 
 	// Storage for the items on the board.
 	private ArrayList<Animal> animals;
+	// position of each animal in animals, indexed by store handle, -1 if not in this field
+	// removing moves the last animal of the list into the gap, so removing is constant time
+	private int[] positions = new int[0];
+
+	// Species ids of the animals, shared with the simulator
+	private SpeciesRegistry species;
+	private SpatialIndex.Type index_type;
+
+	// Spatial index of each species, used to find nearby animals without checking every one
+	// entries are the store handles of the animals, so they stay valid while other animals come and go
+	private ArrayList<SpatialIndex> indexes = new ArrayList<>();
+
+	// Where queries are counted, null to not count them
+	private Metrics metrics;
+
+	// Free space of the search area of randomNearbyLocation, reused by every search
+	private final OccupancyRaster raster = new OccupancyRaster();
 
 	public ArrayList<Animal> getAnimals(){
 		return animals; //get animals for drawing
 	}
+	public SpeciesRegistry getSpecies(){
+		return species;
+	}
+	//count queries on this field, null to stop counting
+	public void setMetrics(Metrics metrics){
+		this.metrics = metrics;
+	}
 
 	//a field of given dimensions
 	public Field(double width, double height) {
+		this(width, height, SpatialIndex.Type.GRID);
+	}
+
+	//a field of given dimensions using a certain kind of spatial index
+	public Field(double width, double height, SpatialIndex.Type index_type) {
+		this(width, height, index_type, new SpeciesRegistry());
+	}
+
+	//a field of given dimensions using a certain kind of spatial index, with species ids from a registry
+	public Field(double width, double height, SpatialIndex.Type index_type, SpeciesRegistry species) {
 		this.dimensions = new Vector2(width,height);
+		this.index_type = index_type;
+		this.species = species;
 		animals = new ArrayList<>();
-
 	}
 
 	//empty the field
 	public void clear() {
+		for (Animal a : animals) {positions[a.getHandle()] = -1;}
 		animals.clear();
+		for (SpatialIndex index : indexes) {index.clear();}
 	}
 
-	//add animal
-	public void put(Animal obj) {animals.add(obj);}
-	public void remove(Animal obj){animals.remove(obj);}
+	//add animal, an animal can only be in a field once
+	public void put(Animal obj) {
+		int handle = obj.getHandle();
+		if(handle >= positions.length){ //handles only grow with the number of animals alive at once
+			int capacity = Math.max(16, Math.max(handle + 1, positions.length * 2));
+			int old_capacity = positions.length;
+			positions = Arrays.copyOf(positions, capacity);
+			Arrays.fill(positions, old_capacity, capacity, -1);
+		}
+		if(positions[handle] != -1){return;} //already here
+		int species_id = obj.getSpecies();
+		while(indexes.size() <= species_id){ //first animal of a new species
+			indexes.add(index_type.create(getWidth(), getHeight()));
+		}
+		positions[handle] = animals.size();
+		animals.add(obj);
+		indexes.get(species_id).insert(handle, obj.getX(), obj.getY(), obj.getRadius());
+	}
+	//remove animal in constant time, the last animal of the list moves into its place
+	public void remove(Animal obj){
+		if(!contains(obj)){return;}
+		int handle = obj.getHandle();
+		int position = positions[handle];
+		Animal last = animals.remove(animals.size() - 1);
+		if(position < animals.size()){
+			animals.set(position, last);
+			positions[last.getHandle()] = position;
+		}
+		indexes.get(obj.getSpecies()).remove(handle);
+		positions[handle] = -1;
+	}
+
+	//is an animal in this field
+	public boolean contains(Animal obj){
+		int handle = obj.getHandle();
+		return handle < positions.length && positions[handle] != -1 && animals.get(positions[handle]) == obj;
+	}
+
+	//get the animal with a store handle, the handle has to be in this field
+	private Animal byHandle(int handle){
+		return animals.get(positions[handle]);
+	}
 
 	//get the nearest object to location. Return null if there are no animals.
+	//animals equally far away go to the lowest store handle, not to the first in getAnimals like the old linear scan:
+	//removing swaps the last animal into the gap, so the list order changes all the time and is not the same in both fields
 	public Animal closestAnimal(Vector2 location) {
-		if(animals.isEmpty()){return null;} //check if there are none
-		double closest_distance = animals.get(0).getLocation().distance(location); //first animal be default
-		Animal closest_animal = animals.get(0);
-		for (Animal a : animals) {
-			double distance = a.getLocation().distance(location);
-			if(distance < closest_distance){
-				closest_distance = distance;
-				closest_animal = a;
-			}
-		}
-		return closest_animal;
+		return closestAnimal(location.x, location.y);
 	}
-	//get the nearest animal of a certain type. Return null if none
-	public Animal closestAnimalOfType(Vector2 location, String type) {
+	public Animal closestAnimal(double x, double y) {
+		if(metrics != null){metrics.count(Metrics.Count.CLOSEST_QUERIES);}
+		int closest_id = -1;
 		double closest_distance = Double.MAX_VALUE;
-		Animal closest_animal = null;
-		for (Animal a : animals) {
-			if(a.getTypeName().equals(type)){
-				double distance = a.getLocation().distance(location);
-				if(distance < closest_distance){
-					closest_distance = distance;
-					closest_animal = a;
-				}
+		for (int s = 0; s < indexes.size(); s++) { //closest of each species, then the closest of those
+			int id = indexes.get(s).nearest(x, y, null);
+			if(id == -1){continue;}
+			Animal a = byHandle(id);
+			double distance = Vector2.distanceSquared(a.getX(), a.getY(), x, y);
+			if(distance < closest_distance || (distance == closest_distance && id < closest_id)){
+				closest_distance = distance;
+				closest_id = id;
 			}
 		}
-		return closest_animal;
+		return closest_id == -1 ? null : byHandle(closest_id);
+	}
+	//get the nearest animal of a certain type. Return null if none, ties go to the lowest store handle like closestAnimal
+	public Animal closestAnimalOfType(Vector2 location, Class<? extends Animal> type) {
+		return closestAnimalOfType(location.x, location.y, species.idOf(type));
+	}
+	public Animal closestAnimalOfType(double x, double y, Class<? extends Animal> type) {
+		return closestAnimalOfType(x, y, species.idOf(type));
+	}
+	//get the nearest animal of a certain species id, only animals of that species are looked at. Return null if none
+	public Animal closestAnimalOfType(Vector2 location, int species_id) {
+		return closestAnimalOfType(location.x, location.y, species_id);
+	}
+	public Animal closestAnimalOfType(double x, double y, int species_id) {
+		if(metrics != null){metrics.count(Metrics.Count.CLOSEST_QUERIES);}
+		if(species_id < 0 || species_id >= indexes.size()){return null;} //none of that species were ever placed
+		int id = indexes.get(species_id).nearest(x, y, null);
+		return id == -1 ? null : byHandle(id);
 	}
 
 	//get a random free nearby location, return null if none
 	// specify a radius of where to search and how often to try until fail
-	public Vector2 randomNearbyLocation(Vector2 location, double spawn_radius, int tries) {
-		for (int i = 0; i < tries; i++) {
-			double random_offset_x = (rand.nextDouble() - 0.5) * spawn_radius;
-			double random_offset_y = (rand.nextDouble() - 0.5) * spawn_radius;
-			Vector2 potential_location = new Vector2(location.x + random_offset_x, location.y + random_offset_y);
-			if(isLegalLocation(potential_location)){//is on field
-				//check for collisions
-				if(isEmpty(potential_location)){
-					return potential_location;
-				}
-			}
-		}
-		return null;
+	public Vector2 randomNearbyLocation(Vector2 location, double spawn_radius, int tries, RandomStream rand) {
+		return randomNearbyLocation(location, spawn_radius, 0, tries, rand); //a point is a spot without size
 	}
 
 	//same as other one, but checks for free spot rather than point
-	public Vector2 randomNearbyLocation(Vector2 location, double spawn_radius, double free_radius, int tries) {
-		for (int i = 0; i < tries; i++) {
-			double random_offset_x = (rand.nextDouble() - 0.5) * spawn_radius;
-			double random_offset_y = (rand.nextDouble() - 0.5) * spawn_radius;
-			Vector2 potential_location = new Vector2(location.x + random_offset_x, location.y + random_offset_y);
-			if(isLegalLocation(potential_location)){//is on field
-				//check for collisions
-				if(isEmpty(potential_location,free_radius)){
-					return potential_location;
-				}
+	public Vector2 randomNearbyLocation(Vector2 location, double spawn_radius, double free_radius, int tries, RandomStream rand) {
+		Vector2 result = new Vector2();
+		return randomNearbyLocation(location.x, location.y, spawn_radius, free_radius, tries, rand, result) ? result : null;
+	}
+
+	//same as other one, but writes the location into result instead of making a new vector
+	//returns false if no free spot was found
+	//a few random guesses first, then the rest of the tries are spread over the whole search area so a free spot is only missed
+	//if it is smaller than the gap between them, the search takes about the same time however crowded it is
+	//uses a raster kept by the field, so only search from one thread at a time
+	public boolean randomNearbyLocation(double x, double y, double spawn_radius, double free_radius, int tries, RandomStream rand, Vector2 result) {
+		int quick_tries = Math.min(tries, OccupancyRaster.QUICK_TRIES);
+		for (int i = 0; i < quick_tries; i++) {
+			double potential_x = x + (rand.nextDouble() - 0.5) * spawn_radius;
+			double potential_y = y + (rand.nextDouble() - 0.5) * spawn_radius;
+			if(isFree(potential_x, potential_y, free_radius)){//on field and no collisions
+				result.set(potential_x, potential_y);
+				countSearch(i + 1, true);
+				return true;
 			}
 		}
-		return null;
+		if(tries == quick_tries){
+			countSearch(tries, false);
+			return false;
+		}
+		raster.begin(x, y, spawn_radius, free_radius, tries - quick_tries, rand);
+		raster.blockOutside(getWidth(), getHeight());
+		for (int s = 0; s < indexes.size(); s++) { //every animal that can reach into the area blocks the spots it covers
+			indexes.get(s).visitOverlapping(raster.getCenterX(), raster.getCenterY(), raster.getReach(), raster);
+		}
+		boolean found = raster.pick(rand, result);
+		countSearch(quick_tries + raster.size(), found);
+		return found;
+	}
+	private void countSearch(int attempts, boolean found) {
+		if(metrics == null){return;}
+		metrics.count(Metrics.Count.NEARBY_SEARCHES);
+		metrics.count(Metrics.Count.NEARBY_ATTEMPTS, attempts);
+		if(!found){metrics.count(Metrics.Count.NEARBY_FAILURES);}
 	}
 
 	//is a location within field
 	public boolean isLegalLocation(Vector2 l) {
-		return ((l.x > 0) && (l.y < getHeight()) &&
-				(l.y > 0) && (l.x < getWidth()));
+		return isLegalLocation(l.x, l.y);
+	}
+	public boolean isLegalLocation(double x, double y) {
+		return ((x > 0) && (y < getHeight()) &&
+				(y > 0) && (x < getWidth()));
 	}
 
 	//is point free
 	public boolean isEmpty(Vector2 location) {
-		if(!isLegalLocation(location)){return false;}; //check if even in field
-		for (Animal animal : animals) { //loop through all animals
-			if(animal.getLocation().distance(location) < animal.getRadius()){ //if within other animal
-				return false;
-			}
-		}
-		return true;
+		return isEmpty(location.x, location.y, 0); //a point is a circle without size
+	}
+	public boolean isEmpty(double x, double y) {
+		return isEmpty(x, y, 0);
 	}
 
 	// is spot(circle) free
 	public boolean isEmpty(Vector2 location, double radius) {
-		if(!isLegalLocation(location)){return false;}; //check if even in field
-		for (Animal animal : animals) { //loop through all animals
-			if(animal.getLocation() == null){
-				System.err.println("Someone did not find a position!");
-			}
-			double distance =animal.getLocation().distance(location);
-			double other_radius = animal.getRadius();
-			if(distance < radius + other_radius){
-				return false; //check if 2 circles intersect
-			}
+		return isEmpty(location.x, location.y, radius);
+	}
+	public boolean isEmpty(double x, double y, double radius) {
+		if(metrics != null){metrics.count(Metrics.Count.EMPTY_QUERIES);}
+		return isFree(x, y, radius);
+	}
+	private boolean isFree(double x, double y, double radius) {
+		if(!isLegalLocation(x, y)){return false;} //check if even in field
+		for (int s = 0; s < indexes.size(); s++) {
+			if(indexes.get(s).overlapsAny(x, y, radius)){return false;} //only checks nearby animals
 		}
 		return true;
 	}
-
-
-
-
 }
\ No newline at end of file
@@ -1,9 +1,8 @@
 package Field;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
-import Animals.Animal;
 import Simulator.Simulator;
 import processing.core.*;
 
@@ -11,17 +10,40 @@ public class FieldDisplay {
     // Colors used for empty locations.
     private static final int EMPTY_COLOR = 0xFFFFFFFF;
 
-    // Color used for objects that have no defined color.
-    private static final int UNKNOWN_COLOR = 0x66666666;
     private static final int DEFAULT_EDGE_BUFFER = 20;
 
+    // Color of the edge of every animal, and how wide it is in pixels.
+    private static final int EDGE_COLOR = 0xFF000000;
+    private static final float EDGE_WIDTH = 1;
+
+    // Bands of rows drawn at the same time, once there are enough animals to be worth it.
+    private static final int BANDS = 8;
+    private static final int MIN_BAND_HEIGHT = 16;
+    private static final int PARALLEL_ANIMALS = 5000;
+
+    // Above this many animals a density heatmap is drawn instead of every animal.
+    public static final int DEFAULT_HEATMAP_THRESHOLD = 200000;
+    // Width and height of a heatmap cell in pixels.
+    public static final int DEFAULT_HEATMAP_CELL_SIZE = 4;
+
+    // Smallest part of the field that can be zoomed in on, in field units across.
+    private static final float MIN_VIEW_SIZE = 5;
+
     private PApplet p;  // the applet we want to display on
     private Field f;    // the field object we'll be displaying
     private int x, y, w, h; // (x, y) of upper left corner of display
     // the width and height of the display
     private float dx, dy;  // calculate the width and height of each box
-    // in the field display using the size of the field
+    // in the field display using the size of the visible part of the field
     // and the width and height of the display
+    private float fieldWidth, fieldHeight;
+    private float viewX, viewY, viewW, viewH; // part of the field that is shown, in field units
+    private int[] visible = new int[0]; // animals near the view, when only part of the field is shown
+    private PImage image; // animals are drawn into its pixels, made on the first draw
+    private int heatmapThreshold = DEFAULT_HEATMAP_THRESHOLD;
+    private int heatmapCellSize = DEFAULT_HEATMAP_CELL_SIZE;
+    // animals of each species in each heatmap cell, one histogram per part of the animals counted at the same time
+    private int[][] histograms = new int[0][];
 
 
     public FieldDisplay(PApplet p, Simulator s) {
@@ -39,27 +61,203 @@ public class FieldDisplay {
         this.h = h;
         this.p = p;
         this.f = f;
-        this.dx = (float)w / (int)f.getWidth();
-        this.dy = (float)h / (int)f.getHeight();
+        this.fieldWidth = (int)f.getWidth();
+        this.fieldHeight = (int)f.getHeight();
+        resetView();
+    }
+
+    //show the whole field again
+    public void resetView() {
+        setView(0, 0, fieldWidth);
+    }
+
+    //zoom in by a factor, or out for a factor below 1, keeping the part of the field under a screen location in place
+    public void zoom(float factor, float screenX, float screenY) {
+        float worldX = viewX + (screenX - x) / dx;
+        float worldY = viewY + (screenY - y) / dy;
+        float width = Math.max(Math.min(MIN_VIEW_SIZE, fieldWidth), Math.min(fieldWidth, viewW / factor));
+        float scale = width / viewW;
+        setView(worldX - (worldX - viewX) * scale, worldY - (worldY - viewY) * scale, width);
+    }
+
+    //move the view so a location on the screen ends up in its middle, as far as the view stays inside the field
+    public void centerOn(float screenX, float screenY) {
+        Vector2 world = worldLocationAt(new Vector2(screenX, screenY));
+        if (world == null) return;
+        setView((float) world.x - viewW / 2, (float) world.y - viewH / 2, viewW);
+    }
+
+    //move the view along with the mouse, by a distance in pixels
+    public void pan(float screenDx, float screenDy) {
+        setView(viewX - screenDx / dx, viewY - screenDy / dy, viewW);
+    }
+
+    //show a part of the field as wide as given, as high as keeps the shape of the field, kept inside the field
+    private void setView(float left, float top, float width) {
+        viewW = width;
+        viewH = width * fieldHeight / fieldWidth;
+        viewX = Math.max(0, Math.min(fieldWidth - viewW, left));
+        viewY = Math.max(0, Math.min(fieldHeight - viewH, top));
+        dx = w / viewW;
+        dy = h / viewH;
+    }
+
+    //is only part of the field shown
+    public boolean isZoomed() {
+        return viewW < fieldWidth;
+    }
+
+    //draw a snapshot of the animals, it is only read so the simulation can already fill another one
+    public void drawField(FieldSnapshot animals) {
+        if (image == null) {
+            image = p.createImage(w, h, PConstants.ARGB);
+        }
+        //draw every animal straight into the pixels of one image, then draw the image once
+        //the image is cut into bands of rows that are filled at the same time, each band draws the animals in
+        //store order so later animals still cover earlier ones
+        //when zoomed in only the animals near the view are looked at, found through the grid of the snapshot
+        Arrays.fill(image.pixels, 0); //transparent
+        int count = isZoomed() ? findVisible(animals) : animals.size();
+        int[] slots = isZoomed() ? visible : null; //null for all of them
+        int bands = Math.max(1, Math.min(BANDS, h / MIN_BAND_HEIGHT));
+        if (count > heatmapThreshold) {
+            drawHeatmap(animals, slots, count);
+        } else if (count < PARALLEL_ANIMALS || bands == 1) {
+            drawBand(animals, slots, count, 0, h);
+        } else {
+            IntStream.range(0, bands).parallel().forEach(b -> drawBand(animals, slots, count, h * b / bands, h * (b + 1) / bands));
+        }
+        image.updatePixels();
+        p.image(image, x, y);
     }
 
-    public void drawField(Field field) {
+    //put the slots of the animals that may show in the view into visible, in store order, and return how many
+    private int findVisible(FieldSnapshot animals) {
+        if (visible.length < animals.size()) {visible = new int[Math.max(animals.size(), visible.length * 2)];}
+        return animals.query(viewX, viewY, viewX + viewW, viewY + viewH, visible);
+    }
+
+    //draw the part of the animals at the first count slots (all of them if slots is null) that falls in rows from top up to bottom
+    //an animal is a disc around its location, as wide as its radius in field units, with a dark edge like the stroke of an ellipse
+    private void drawBand(FieldSnapshot animals, int[] slots, int count, int top, int bottom) {
+        int[] pixels = image.pixels;
+        for (int i = 0; i < count; i++) {
+            int slot = slots == null ? i : slots[i];
+            float r = animals.getRadius(slot) * dx / 2;
+            float cy = (animals.getY(slot) - viewY) * dy;
+            int first_row = Math.max(top, (int) Math.ceil(cy - r - 0.5f));
+            int last_row = Math.min(bottom - 1, (int) Math.floor(cy + r - 0.5f));
+            if (first_row > last_row) {continue;} //not in this band
+            int color = animals.getColor(slot);
+            float cx = (animals.getX(slot) - viewX) * dx;
+            float inner = r - EDGE_WIDTH;
+            for (int row = first_row; row <= last_row; row++) {
+                float offset = row + 0.5f - cy; //from the center of the pixel to the center of the disc
+                float half = (float) Math.sqrt(r * r - offset * offset);
+                int from = Math.max(0, (int) Math.ceil(cx - half - 0.5f));
+                int to = Math.min(w - 1, (int) Math.floor(cx + half - 0.5f));
+                if (from > to) {continue;}
+                int line = row * w;
+                Arrays.fill(pixels, line + from, line + to + 1, EDGE_COLOR);
+                if (Math.abs(offset) >= inner) {continue;} //only edge on this row
+                float inner_half = (float) Math.sqrt(inner * inner - offset * offset);
+                int inner_from = Math.max(from, (int) Math.ceil(cx - inner_half - 0.5f));
+                int inner_to = Math.min(to, (int) Math.floor(cx + inner_half - 0.5f));
+                if (inner_from <= inner_to) {Arrays.fill(pixels, line + inner_from, line + inner_to + 1, color);}
+            }
+        }
+    }
+
+    //draw how many animals of each species are in each cell of a grid over the display instead of the animals
+    //the colour of a cell is the colours of the species mixed by their counts, the more animals the more opaque it is
+    //counting is a single increment per animal, split over threads that each count into their own histogram,
+    //everything after that depends only on the size of the display
+    private void drawHeatmap(FieldSnapshot animals, int[] slots, int size) {
+        int cell = heatmapCellSize;
+        int columns = (w + cell - 1) / cell;
+        int rows = (h + cell - 1) / cell;
+        int cells = columns * rows;
+        int species = animals.getSpeciesCount();
+        int length = species * cells; //counts of species s are at s * cells
+        int parts = size < PARALLEL_ANIMALS ? 1 : BANDS;
+        if (histograms.length < parts || histograms[0].length < length) {
+            histograms = new int[parts][length];
+        }
+
+        IntStream.range(0, parts).parallel().forEach(part -> {
+            int[] counts = histograms[part];
+            Arrays.fill(counts, 0, length, 0);
+            for (int i = size * part / parts; i < size * (part + 1) / parts; i++) {
+                int slot = slots == null ? i : slots[i];
+                float screenX = (animals.getX(slot) - viewX) * dx;
+                float screenY = (animals.getY(slot) - viewY) * dy;
+                if (screenX < 0 || screenY < 0) {continue;} //left of or above the view, casting would round it into the first cell
+                int column = (int) screenX / cell;
+                int row = (int) screenY / cell;
+                if (column >= columns || row >= rows) {continue;}
+                counts[animals.getSpeciesId(slot) * cells + row * columns + column]++;
+            }
+        });
+        int[] counts = histograms[0];
+        for (int part = 1; part < parts; part++) {
+            int[] more = histograms[part];
+            for (int k = 0; k < length; k++) {counts[k] += more[k];}
+        }
 
-        //draw
-        for (Animal animal : field.getAnimals()) {
-            Integer animal_color = animal.getColor().hashCode();
-            Vector2 position = animal.getLocation();
-            double radius = animal.getRadius();
-            p.fill(animal_color);
-            p.ellipse((float)position.x * dx,(float)position.y * dy,(float)radius*dx,(float)radius*dx);
+        int most = 1; //animals in the fullest cell
+        for (int c = 0; c < cells; c++) {
+            int total = 0;
+            for (int s = 0; s < species; s++) {total += counts[s * cells + c];}
+            most = Math.max(most, total);
+        }
+        double scale = 255 / Math.log1p(most); //a log scale, so thin areas still show next to crowded ones
+        int[] pixels = image.pixels;
+        for (int c = 0; c < cells; c++) {
+            int total = 0;
+            int red = 0, green = 0, blue = 0;
+            for (int s = 0; s < species; s++) {
+                int count = counts[s * cells + c];
+                if (count == 0) {continue;}
+                int color = animals.getSpeciesColor(s);
+                total += count;
+                red += count * ((color >> 16) & 0xFF);
+                green += count * ((color >> 8) & 0xFF);
+                blue += count * (color & 0xFF);
+            }
+            if (total == 0) {continue;}
+            int alpha = (int) Math.max(1, Math.log1p(total) * scale);
+            int color = alpha << 24 | (red / total) << 16 | (green / total) << 8 | (blue / total);
+            int left = (c % columns) * cell;
+            int right = Math.min(w, left + cell);
+            int top = (c / columns) * cell;
+            for (int row = top; row < Math.min(h, top + cell); row++) {
+                Arrays.fill(pixels, row * w + left, row * w + right, color);
+            }
         }
     }
-    public Vector2 gridLocationAt(Vector2 l) {
-        if (l.x > x && l.y < x + w && l.y > y && l.y < y+h) {
-            return new Vector2((int)Math.floor((l.y-y)/dy), (int)Math.floor((l.x-x)/dx));
+
+    //draw a heatmap instead of the animals once there are more than this many
+    public void setHeatmapThreshold(int animals) {
+        this.heatmapThreshold = animals;
+    }
+
+    //width and height of the heatmap cells in pixels
+    public void setHeatmapCellSize(int pixels) {
+        this.heatmapCellSize = Math.max(1, pixels);
+    }
+
+    //location in the field under a location on the screen, null if it is not on the display
+    public Vector2 worldLocationAt(Vector2 l) {
+        if (contains((float)l.x, (float)l.y)) {
+            return new Vector2(viewX + (l.x-x)/dx, viewY + (l.y-y)/dy);
         } else return null;
     }
 
+    //does a location on the screen fall on the display
+    public boolean contains(float screenX, float screenY) {
+        return screenX >= x && screenX < x + w && screenY >= y && screenY < y + h;
+    }
+
     public int getBottomEdge() {
         return y + h;
     }
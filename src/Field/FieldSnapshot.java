@@ -0,0 +1,98 @@
+package Field;
+
+import Animals.AnimalStore;
+import Animals.SpeciesRegistry;
+
+import java.util.Arrays;
+
+//what a field looked like after a step, copied out of the store so it can be drawn while the next steps run
+//a snapshot is filled again for every step it is used for, so the arrays are only made when the store outgrows them
+//the animals are also sorted into a grid while they are copied, so the ones in a part of the field can be found
+//without looking at all of them
+public class FieldSnapshot {
+    private static final double GRID_CELL_SIZE = 4; //width and height of a grid cell in field units
+    private int step = -1; //-1 until it was filled the first time
+    private int size = 0; //animals in the snapshot
+    private float[] xs = new float[0];
+    private float[] ys = new float[0];
+    private float[] radii = new float[0];
+    private int[] species_ids = new int[0];
+    private int[] colors = new int[0]; //colour of each species id as ARGB
+    private float max_radius = 0;
+
+    //grid over the field, the animals of cell c are at sorted[cell_starts[c]] up to sorted[cell_starts[c + 1]], in store order
+    private int columns = 0, rows = 0;
+    private int[] cell_starts = new int[1];
+    private int[] sorted = new int[0];
+    private int[] cells_of = new int[0]; //cell of each animal, only used while sorting
+
+    //copy the animals of a store on a field of given dimensions, only from the thread that steps it
+    public void capture(AnimalStore animals, double width, double height, int step) {
+        this.step = step;
+        size = animals.size();
+        if (xs.length < size) {
+            int capacity = Math.max(size, xs.length * 2);
+            xs = new float[capacity];
+            ys = new float[capacity];
+            radii = new float[capacity];
+            species_ids = new int[capacity];
+            sorted = new int[capacity];
+            cells_of = new int[capacity];
+        }
+        columns = Math.max(1, (int) Math.ceil(width / GRID_CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / GRID_CELL_SIZE));
+        if (cell_starts.length < columns * rows + 1) {cell_starts = new int[columns * rows + 1];}
+        Arrays.fill(cell_starts, 0, columns * rows + 1, 0);
+        max_radius = 0;
+        SpeciesRegistry species = animals.getSpecies();
+        if (colors.length < species.size()) {colors = Arrays.copyOf(colors, species.size());}
+        for (int slot = 0; slot < size; slot++) {
+            xs[slot] = (float) animals.getX(slot);
+            ys[slot] = (float) animals.getY(slot);
+            radii[slot] = (float) animals.getRadius(slot);
+            int species_id = animals.getSpeciesId(slot);
+            species_ids[slot] = species_id;
+            if (colors[species_id] == 0) {colors[species_id] = species.colorOf(animals.get(slot));}
+            max_radius = Math.max(max_radius, radii[slot]);
+            int cell = row(ys[slot]) * columns + column(xs[slot]);
+            cells_of[slot] = cell;
+            cell_starts[cell + 1]++;
+        }
+        //counting sort into the cells, going through the slots in order keeps store order within a cell
+        for (int c = 0; c < columns * rows; c++) {cell_starts[c + 1] += cell_starts[c];}
+        for (int slot = 0; slot < size; slot++) {sorted[cell_starts[cells_of[slot]]++] = slot;}
+        for (int c = columns * rows; c > 0; c--) {cell_starts[c] = cell_starts[c - 1];} //each start was moved to the next cell's
+        cell_starts[0] = 0;
+    }
+
+    //write the indexes of the animals that may overlap a rectangle into result, in store order, and return how many
+    //result needs room for all animals in the snapshot, the time taken depends on how many animals are near the rectangle
+    public int query(float min_x, float min_y, float max_x, float max_y, int[] result) {
+        int first_column = column(min_x - max_radius), last_column = column(max_x + max_radius);
+        int first_row = row(min_y - max_radius), last_row = row(max_y + max_radius);
+        int count = 0;
+        for (int row = first_row; row <= last_row; row++) {
+            int from = cell_starts[row * columns + first_column];
+            int to = cell_starts[row * columns + last_column + 1]; //the cells of a row are next to each other
+            System.arraycopy(sorted, from, result, count, to - from);
+            count += to - from;
+        }
+        Arrays.sort(result, 0, count); //so later animals still cover earlier ones
+        return count;
+    }
+
+    //grid cell of a location, animals off the field go into the nearest cell
+    private int column(double x) {return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / GRID_CELL_SIZE)));}
+    private int row(double y) {return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / GRID_CELL_SIZE)));}
+
+    //getters
+    public int getStep() {return step;}
+    public int size() {return size;}
+    public float getX(int i) {return xs[i];}
+    public float getY(int i) {return ys[i];}
+    public float getRadius(int i) {return radii[i];}
+    public int getSpeciesId(int i) {return species_ids[i];}
+    public int getColor(int i) {return colors[species_ids[i]];} //colour of the animal, by its species
+    public int getSpeciesCount() {return colors.length;} //all species ids are below this
+    public int getSpeciesColor(int species_id) {return colors[species_id];} //0 if none of the species was captured yet
+}
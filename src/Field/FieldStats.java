@@ -1,9 +1,10 @@
 package Field;
 
-import Animals.Animal;
+import Animals.AnimalStore;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 
 /**
  * This class collects and provides some statistical data on the state 
@@ -14,9 +15,10 @@ import java.util.HashMap;
  */
 public class FieldStats {
 
-    // Current counts for all object types
-    // DANGER PUBLIC THING!  
-    private HashMap<Class, Counter> counts;
+    // Current counts for all species found so far, in the order they were found
+    private ArrayList<Counter> counts;
+    // The same counters indexed by species id, null for species not found yet
+    private Counter[] species_counts = new Counter[0];
 
     private boolean countsValid = false;
 
@@ -27,21 +29,20 @@ public class FieldStats {
     {
         // Set up a collection for counters for each type of animal that
         // we might find
-        counts = new HashMap<Class, Counter>();
+        counts = new ArrayList<Counter>();
     }
 
     /**
      * Get details of what is in the field.
      * @return A string describing what is in the field.
      */
-    public String getPopulationDetails(Field field)
+    public String getPopulationDetails(AnimalStore animals)
     {
         StringBuffer buffer = new StringBuffer();
         if(!countsValid) {
-            generateCounts(field);
+            generateCounts(animals);
         }
-        for(Class key : counts.keySet()) {
-            Counter info = counts.get(key);
+        for(Counter info : counts) {
             buffer.append(info.getName());
             buffer.append(": ");
             buffer.append(info.getCount());
@@ -57,27 +58,23 @@ public class FieldStats {
     public void reset()
     {
         countsValid = false;
-        for(Class key : counts.keySet()) {
-            Counter count = counts.get(key);
+        for(Counter count : counts) {
             count.reset();
         }
     }
 
     /**
-     * Increment the count for one class of animal.
-     * @param animalClass The class of animal to increment.
+     * Increment the count for one species of animal.
+     * @param animals The store the species id belongs to.
+     * @param species The species id to increment.
      */
-    public void incrementCount(Class animalClass)
+    public void incrementCount(AnimalStore animals, int species)
     {
-        Counter count = counts.get(animalClass);
-        if(count == null) {
+        if (species >= species_counts.length || species_counts[species] == null) {
             // We do not have a counter for this species yet.
-            // Create one.
-            count = new Counter(animalClass);
-            counts.put(animalClass, count);
+            addSpeciesCounter(animals, species);
         }
-
-        count.increment();
+        species_counts[species].increment();
     }
 
     /**
@@ -93,16 +90,15 @@ public class FieldStats {
      * I.e., should it continue to run.
      * @return true If there is more than one species alive.
      */
-    public boolean isViable(Field field)
+    public boolean isViable(AnimalStore animals)
     {
         // How many counts are non-zero.
         int nonZero = 0;
         if(!countsValid) {
-            generateCounts(field);
+            generateCounts(animals);
         }
 
-        for(Class key : counts.keySet()) {
-            Counter info = counts.get(key);
+        for(Counter info : counts) {
             if(info.getCount() > 0) {
                 nonZero++;
             }
@@ -113,21 +109,55 @@ public class FieldStats {
     
     /**
      * Generate counts of the number of foxes and rabbits.
-     * These are not kept up to date as foxes and rabbits
-     * are placed in the field, but only when a request
-     * is made for the information.
-     * @param field The field to generate the stats for.
+     * The store keeps its counts up to date as animals are
+     * added and removed, so this only copies one number per
+     * species and never walks the animals.
+     * @param animals The animals to generate the stats for.
      */
-    public void generateCounts(Field field)
+    public void generateCounts(AnimalStore animals)
     {
         reset();
-        for (Animal a : field.getAnimals()) {
-            incrementCount(a.getClass());
+        for (int species = 0; species < animals.getSpecies().size(); species++) {
+            int count = animals.getCount(species);
+            if (count == 0) {
+                continue;
+            }
+            if (species >= species_counts.length || species_counts[species] == null) {
+                addSpeciesCounter(animals, species);
+            }
+            species_counts[species].setCount(count);
         }
         countsValid = true;
     }
+
+    /**
+     * Create the counter of a species and remember it by id.
+     */
+    private void addSpeciesCounter(AnimalStore animals, int species)
+    {
+        if (species >= species_counts.length) {
+            species_counts = Arrays.copyOf(species_counts, animals.getSpecies().size());
+        }
+        Counter count = new Counter(species, animals.getSpecies().getType(species));
+        counts.add(count);
+        species_counts[species] = count;
+    }
     
+    /**
+     * @return The number of animals of a species id at the last count.
+     */
+    public int getCount(int species)
+    {
+        if (species >= species_counts.length || species_counts[species] == null) {
+            return 0;
+        }
+        return species_counts[species].getCount();
+    }
+
+    /**
+     * @return The counters of all species found so far, in the order they were found.
+     */
     public Collection<Counter> getCounts() {
-    	return this.counts.values();
+    	return this.counts;
     }
 }
\ No newline at end of file
@@ -1,26 +1,10 @@
 package Field;
-//helper class for evolutionary traits
+//helper for evolutionary traits, genes themselves are kept as plain values in the animal store
 public class Gene {
+    private Gene() {}
 
-    //create a new gene with a random starting value
-    public Gene(double min, double max){
-        value = (Math.random() * (max-min))+min;
+    //get a value from a parent value with a certain amount of +- variation
+    public static double mutate(double parent_value, double max_variation, RandomStream rand){
+        return parent_value + ((rand.nextDouble() * max_variation * 2.0)-(max_variation));//random between -variation and +variation
     }
-
-    //create a new gene with a  starting value
-    public Gene(double value){
-        this.value = value;
-    }
-
-    //create a gene from a parent gene with a certain amount of +- variation
-    public Gene(Gene parent, double max_variation){
-        value = parent.value + ((Math.random() * max_variation * 2.0)-(max_variation));//random between -variation and +variation
-    }
-
-    //get gene value
-    public double getValue(){
-        return value;
-    }
-    //gene value
-    private double value;
 }
@@ -0,0 +1,307 @@
+package Field;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+//2d tree of entries, splitting alternately on x and y
+//nodes are kept in flat arrays and only ever appended, removed entries leave a dead node behind
+//once dead nodes make up half of the tree it is built again from the live entries, so queries cost what the live entries cost
+//an insert that ends up too deep rebuilds the subtree that got lopsided around its medians (like a scapegoat tree),
+//so entries arriving in sorted order, like a starting population placed row by row, still give a shallow tree
+public class KdTreeIndex implements SpatialIndex {
+    private static final int NONE = -1;
+    private static final double BALANCE = 0.7; //largest share of a subtree one child may hold before an insert below it rebuilds it
+    private static final double DEPTH_FACTOR = 1 / Math.log(1 / BALANCE); //a tree balanced like that is at most this times ln(nodes) deep
+    private static final double DEAD_FRACTION = 0.5; //rebuild once this share of the nodes is dead
+    private static final int MIN_REBUILD = 64; //smaller trees are never rebuilt for dead nodes
+
+    //node storage
+    private int[] node_ids = new int[16]; //entry stored in each node
+    private double[] node_xs = new double[16]; //where the entry was when the node was made, a moved entry gets a new node
+    private double[] node_ys = new double[16];
+    private int[] left = new int[16]; //child with smaller coordinate on the split axis
+    private int[] right = new int[16]; //child with larger or equal coordinate
+    private boolean[] dead = new boolean[16]; //entry of the node was removed
+    private int[] sizes = new int[16]; //nodes in the subtree under each node, itself and dead ones included
+    private int node_count = 0;
+    private int root = NONE;
+
+    //size of every entry, indexed by id
+    private double[] radii = new double[16];
+    private int[] node_of = new int[16]; //node holding each entry, NONE if not in the tree
+
+    private int size = 0;
+    private double max_radius = 0;
+
+    //scratch for inserts and rebuilds, only used by the thread that changes the index
+    private int[] path = new int[64]; //nodes from the root down to the node being inserted
+    private int[] gathered = new int[16]; //nodes of a subtree being rebuilt
+
+    //stacks for walking the tree without recursion, one per thread since several threads may query at once
+    private static final ThreadLocal<Walk> WALKS = ThreadLocal.withInitial(Walk::new);
+
+    public KdTreeIndex() {
+        Arrays.fill(node_of, NONE);
+    }
+
+    @Override
+    public void clear() {
+        for (int n = 0; n < node_count; n++) {node_of[node_ids[n]] = NONE;}
+        node_count = 0;
+        root = NONE;
+        size = 0;
+        max_radius = 0;
+    }
+
+    @Override
+    public int size() {return size;}
+
+    @Override
+    public void insert(int id, double x, double y, double radius) {
+        if (id >= radii.length) { //grow entry storage
+            int length = Math.max(id + 1, radii.length * 2);
+            radii = Arrays.copyOf(radii, length);
+            int old_length = node_of.length;
+            node_of = Arrays.copyOf(node_of, length);
+            Arrays.fill(node_of, old_length, length, NONE);
+        }
+        if (node_count == node_ids.length) { //grow node storage
+            int length = node_count * 2;
+            node_ids = Arrays.copyOf(node_ids, length);
+            node_xs = Arrays.copyOf(node_xs, length);
+            node_ys = Arrays.copyOf(node_ys, length);
+            left = Arrays.copyOf(left, length);
+            right = Arrays.copyOf(right, length);
+            dead = Arrays.copyOf(dead, length);
+            sizes = Arrays.copyOf(sizes, length);
+        }
+        radii[id] = radius;
+        max_radius = Math.max(max_radius, radius);
+
+        int node = node_count++;
+        node_ids[node] = id;
+        node_xs[node] = x;
+        node_ys[node] = y;
+        left[node] = NONE;
+        right[node] = NONE;
+        dead[node] = false;
+        sizes[node] = 1;
+        node_of[id] = node;
+        size++;
+
+        if (root == NONE) {root = node; return;}
+        //walk down to a free leaf position, remembering the way
+        int current = root;
+        boolean split_x = true;
+        int depth = 0;
+        while (true) {
+            if (depth == path.length) {path = Arrays.copyOf(path, depth * 2);}
+            path[depth++] = current;
+            sizes[current]++;
+            boolean go_left = split_x ? x < node_xs[current] : y < node_ys[current];
+            int next = go_left ? left[current] : right[current];
+            if (next == NONE) {
+                if (go_left) {left[current] = node;} else {right[current] = node;}
+                break;
+            }
+            current = next;
+            split_x = !split_x;
+        }
+        if (depth > DEPTH_FACTOR * Math.log(node_count) + 1) {rebalance(depth, node);}
+    }
+
+    //the node at the end of a path of a given length went too deep, rebuild the lowest lopsided subtree above it
+    private void rebalance(int depth, int node) {
+        int child = node;
+        for (int d = depth - 1; d >= 0; d--) {
+            int parent = path[d];
+            if (sizes[child] > BALANCE * sizes[parent]) {
+                int count = gather(parent);
+                int rebuilt = build(0, count, d % 2 == 0);
+                if (d == 0) {root = rebuilt;}
+                else if (left[path[d - 1]] == parent) {left[path[d - 1]] = rebuilt;}
+                else {right[path[d - 1]] = rebuilt;}
+                return;
+            }
+            child = parent;
+        }
+    }
+
+    //build the whole tree again from the live entries, dropping the dead nodes
+    private void rebuild() {
+        int count = 0;
+        if (gathered.length < size) {gathered = new int[Math.max(size, gathered.length * 2)];}
+        for (int n = 0; n < node_count; n++) {
+            if (dead[n]) {continue;}
+            //move the live node down to the front of the arrays, a node is never moved onto one that is still to come
+            node_ids[count] = node_ids[n];
+            node_xs[count] = node_xs[n];
+            node_ys[count] = node_ys[n];
+            dead[count] = false;
+            node_of[node_ids[count]] = count;
+            gathered[count] = count;
+            count++;
+        }
+        node_count = count;
+        root = build(0, count, true);
+    }
+
+    //put the nodes of the subtree under a node into gathered, return how many
+    private int gather(int subtree) {
+        if (gathered.length < sizes[subtree]) {gathered = new int[Math.max(sizes[subtree], gathered.length * 2)];}
+        int count = 0;
+        gathered[count++] = subtree;
+        for (int next = 0; next < count; next++) { //gathered doubles as the queue of nodes whose children are still to add
+            int node = gathered[next];
+            if (left[node] != NONE) {gathered[count++] = left[node];}
+            if (right[node] != NONE) {gathered[count++] = right[node];}
+        }
+        return count;
+    }
+
+    //link the gathered nodes from first up to last into a tree split at medians, return its root
+    private int build(int first, int last, boolean split_x) {
+        if (first >= last) {return NONE;}
+        int middle = (first + last) >>> 1;
+        select(first, last, middle, split_x);
+        int node = gathered[middle];
+        //everything before the median is not larger and everything after it not smaller, which queries rely on
+        left[node] = build(first, middle, !split_x);
+        right[node] = build(middle + 1, last, !split_x);
+        sizes[node] = last - first;
+        return node;
+    }
+
+    //reorder the gathered nodes from first up to last so the one at target is where it would be if they were sorted
+    private void select(int first, int last, int target, boolean split_x) {
+        double[] keys = split_x ? node_xs : node_ys;
+        int low = first, high = last - 1;
+        while (low < high) {
+            double pivot = keys[gathered[(low + high) >>> 1]];
+            int i = low, j = high;
+            while (i <= j) {
+                while (keys[gathered[i]] < pivot) {i++;}
+                while (keys[gathered[j]] > pivot) {j--;}
+                if (i <= j) {
+                    int swap = gathered[i];
+                    gathered[i++] = gathered[j];
+                    gathered[j--] = swap;
+                }
+            }
+            if (target <= j) {high = j;}
+            else if (target >= i) {low = i;}
+            else {return;} //between j and i everything equals the pivot
+        }
+    }
+
+    @Override
+    public boolean remove(int id) {
+        if (id >= node_of.length || node_of[id] == NONE) {return false;}
+        dead[node_of[id]] = true; //node stays to keep the tree shape
+        node_of[id] = NONE;
+        size--;
+        if (node_count >= MIN_REBUILD && node_count - size > DEAD_FRACTION * node_count) {rebuild();}
+        return true;
+    }
+
+    @Override
+    public void move(int id, double x, double y) {
+        //the split positions of nodes below it depend on where it is, so it is removed and added again
+        if (remove(id)) {insert(id, x, y, radii[id]);}
+    }
+
+    @Override
+    public int nearest(double x, double y, IntPredicate filter) {
+        if (size == 0) {return NONE;}
+        int best = NONE;
+        double best_distance = Double.MAX_VALUE; //squared, to skip the square root
+        //the far side of a split is pushed first so the near side is searched first
+        Walk walk = WALKS.get();
+        int top = walk.push(0, root, 1, 0);
+        while (top > 0) {
+            top -= 2;
+            if (walk.bounds[top / 2] > best_distance) {continue;} //a closer entry was found since it was pushed
+            int node = walk.stack[top];
+            boolean split_x = walk.stack[top + 1] == 1;
+            int id = node_ids[node];
+            if (!dead[node] && (filter == null || filter.test(id))) {
+                double distance = Vector2.distanceSquared(node_xs[node], node_ys[node], x, y);
+                if (distance < best_distance || (distance == best_distance && id < best)) {
+                    best_distance = distance;
+                    best = id;
+                }
+            }
+            double difference = split_x ? x - node_xs[node] : y - node_ys[node];
+            int near = difference < 0 ? left[node] : right[node];
+            int far = difference < 0 ? right[node] : left[node];
+            double far_bound = difference * difference;
+            if (far_bound <= best_distance) {top = walk.push(top, far, split_x ? 0 : 1, far_bound);}
+            top = walk.push(top, near, split_x ? 0 : 1, 0);
+        }
+        return best;
+    }
+
+    @Override
+    public boolean overlapsAny(double x, double y, double radius) {
+        if (size == 0) {return false;}
+        double reach = radius + max_radius;
+        Walk walk = WALKS.get();
+        int top = walk.push(0, root, 1, 0);
+        while (top > 0) {
+            top -= 2;
+            int node = walk.stack[top];
+            boolean split_x = walk.stack[top + 1] == 1;
+            int id = node_ids[node];
+            if (!dead[node]) {
+                double touching = radius + radii[id];
+                if (Vector2.distanceSquared(node_xs[node], node_ys[node], x, y) < touching * touching) {return true;} //2 circles intersect
+            }
+            double split = split_x ? node_xs[node] : node_ys[node];
+            double value = split_x ? x : y;
+            if (value - reach < split) {top = walk.push(top, left[node], split_x ? 0 : 1, 0);}
+            if (value + reach >= split) {top = walk.push(top, right[node], split_x ? 0 : 1, 0);}
+        }
+        return false;
+    }
+
+    @Override
+    public void visitOverlapping(double x, double y, double radius, Visitor visitor) {
+        if (size == 0) {return;}
+        double reach = radius + max_radius;
+        Walk walk = WALKS.get();
+        int top = walk.push(0, root, 1, 0);
+        while (top > 0) {
+            top -= 2;
+            int node = walk.stack[top];
+            boolean split_x = walk.stack[top + 1] == 1;
+            int id = node_ids[node];
+            if (!dead[node]) {
+                double touching = radius + radii[id];
+                if (Vector2.distanceSquared(node_xs[node], node_ys[node], x, y) < touching * touching) {visitor.visit(id, node_xs[node], node_ys[node], radii[id]);}
+            }
+            double split = split_x ? node_xs[node] : node_ys[node];
+            double value = split_x ? x : y;
+            if (value - reach < split) {top = walk.push(top, left[node], split_x ? 0 : 1, 0);}
+            if (value + reach >= split) {top = walk.push(top, right[node], split_x ? 0 : 1, 0);}
+        }
+    }
+
+    //stack for walking the tree without recursion, it can get deep when entries arrive in sorted order
+    private static final class Walk {
+        int[] stack = new int[64]; //node and whether it splits on x
+        double[] bounds = new double[32]; //smallest possible squared distance to anything below the node
+
+        //push a node onto the stack, return the new top
+        int push(int top, int node, int split_x, double bound) {
+            if (node == NONE) {return top;}
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            stack[top] = node;
+            stack[top + 1] = split_x;
+            bounds[top / 2] = bound;
+            return top + 2;
+        }
+    }
+}
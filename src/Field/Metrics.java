@@ -0,0 +1,143 @@
+package Field;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+//counters and timings of a running simulation, cheap enough to always be on
+//everything is kept as a running total, and endStep remembers the totals so the change over the last step can be read too
+//counters can be added to from any thread, timings only from the thread that runs the simulation
+public class Metrics {
+    //things that are counted
+    public enum Count {
+        CLOSEST_QUERIES, //closest animal lookups on a field
+        EMPTY_QUERIES, //checks if a spot is free, not counting the ones made while searching for a spot
+        NEARBY_SEARCHES, //searches for a random free spot nearby
+        NEARBY_ATTEMPTS, //spots tried by those searches, every candidate of an OccupancyRaster counts
+        NEARBY_FAILURES, //searches that found no free spot
+        BIRTHS, //animals that joined the simulation during a step
+        ALLOCATED_BYTES, //heap allocated by the threads running the steps, 0 if the JVM cannot tell
+    }
+
+    //why an animal died
+    public enum Cause {AGE, STARVATION, PREDATION, OVERCROWDING}
+
+    //parts of a step that are timed
+    public enum Phase {
+        AGENTS, //every animal taking its turn, and merging the tiles when running on several threads
+        FIELD_SWAP, //swapping and clearing the fields and removing the dead from the store
+        COUNTS, //counting the animals of each species
+        GRAPH, //updating the graph
+    }
+
+    private static final Count[] COUNTS = Count.values();
+    private static final Cause[] CAUSES = Cause.values();
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LongAdder[] counts = new LongAdder[COUNTS.length];
+    private final LongAdder[] deaths = new LongAdder[CAUSES.length];
+    private final long[] phase_nanos = new long[PHASES.length];
+    private long[] species_nanos = new long[0]; //time spent stepping the animals of each species id, summed over threads
+
+    //totals at the end of the last two steps, the difference is the last step
+    private final long[] counts_before = new long[COUNTS.length];
+    private final long[] counts_after = new long[COUNTS.length];
+    private final long[] deaths_before = new long[CAUSES.length];
+    private final long[] deaths_after = new long[CAUSES.length];
+    private final long[] phases_before = new long[PHASES.length];
+    private final long[] phases_after = new long[PHASES.length];
+    private long[] species_before = new long[0];
+    private long[] species_after = new long[0];
+    private int steps = 0;
+
+    public Metrics() {
+        for (int i = 0; i < counts.length; i++) {counts[i] = new LongAdder();}
+        for (int i = 0; i < deaths.length; i++) {deaths[i] = new LongAdder();}
+    }
+
+    //record, counters can be called from any thread
+    public void count(Count count) {counts[count.ordinal()].increment();}
+    public void count(Count count, long amount) {counts[count.ordinal()].add(amount);}
+    public void death(Cause cause) {deaths[cause.ordinal()].increment();}
+
+    //record timings, only from the simulation thread
+    public void addTime(Phase phase, long nanos) {phase_nanos[phase.ordinal()] += nanos;}
+    public void addSpeciesTime(int species, long nanos) {
+        if (species >= species_nanos.length) {species_nanos = Arrays.copyOf(species_nanos, species + 1);}
+        species_nanos[species] += nanos;
+    }
+
+    //a step is done, remember the totals so far
+    public void endStep() {
+        for (int i = 0; i < counts.length; i++) {
+            counts_before[i] = counts_after[i];
+            counts_after[i] = counts[i].sum();
+        }
+        for (int i = 0; i < deaths.length; i++) {
+            deaths_before[i] = deaths_after[i];
+            deaths_after[i] = deaths[i].sum();
+        }
+        System.arraycopy(phases_after, 0, phases_before, 0, phases_after.length);
+        System.arraycopy(phase_nanos, 0, phases_after, 0, phase_nanos.length);
+        if (species_after.length < species_nanos.length) { //a new species stepped for the first time
+            species_before = Arrays.copyOf(species_before, species_nanos.length);
+            species_after = Arrays.copyOf(species_after, species_nanos.length);
+        }
+        System.arraycopy(species_after, 0, species_before, 0, species_after.length);
+        System.arraycopy(species_nanos, 0, species_after, 0, species_nanos.length);
+        steps++;
+    }
+
+    //start again from 0, when the simulation is reset
+    public void reset() {
+        for (LongAdder count : counts) {count.reset();}
+        for (LongAdder death : deaths) {death.reset();}
+        Arrays.fill(phase_nanos, 0);
+        species_nanos = new long[0];
+        Arrays.fill(counts_before, 0);
+        Arrays.fill(counts_after, 0);
+        Arrays.fill(deaths_before, 0);
+        Arrays.fill(deaths_after, 0);
+        Arrays.fill(phases_before, 0);
+        Arrays.fill(phases_after, 0);
+        species_before = new long[0];
+        species_after = new long[0];
+        steps = 0;
+    }
+
+    //totals since the start, as of the end of the last step
+    public long getTotal(Count count) {return counts_after[count.ordinal()];}
+    public long getTotalDeaths(Cause cause) {return deaths_after[cause.ordinal()];}
+    public long getTotalNanos(Phase phase) {return phases_after[phase.ordinal()];}
+    public long getTotalSpeciesNanos(int species) {return species < species_after.length ? species_after[species] : 0;}
+
+    //change over the last step
+    public long getLastStep(Count count) {return counts_after[count.ordinal()] - counts_before[count.ordinal()];}
+    public long getLastStepDeaths(Cause cause) {return deaths_after[cause.ordinal()] - deaths_before[cause.ordinal()];}
+    public long getLastStepNanos(Phase phase) {return phases_after[phase.ordinal()] - phases_before[phase.ordinal()];}
+    public long getLastStepSpeciesNanos(int species) {
+        long before = species < species_before.length ? species_before[species] : 0;
+        return getTotalSpeciesNanos(species) - before;
+    }
+
+    //steps ended since the start
+    public int getSteps() {return steps;}
+
+    //one line per metric with the last step and the total, for printing
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Phase phase : PHASES) {
+            text.append(String.format("%-22s %12.3f ms %14.3f ms%n", phase, getLastStepNanos(phase) / 1e6, getTotalNanos(phase) / 1e6));
+        }
+        for (int s = 0; s < species_after.length; s++) {
+            text.append(String.format("%-22s %12.3f ms %14.3f ms%n", "AGENTS species " + s, getLastStepSpeciesNanos(s) / 1e6, getTotalSpeciesNanos(s) / 1e6));
+        }
+        for (Count count : COUNTS) {
+            text.append(String.format("%-22s %15d %17d%n", count, getLastStep(count), getTotal(count)));
+        }
+        for (Cause cause : CAUSES) {
+            text.append(String.format("%-22s %15d %17d%n", "DEATHS " + cause, getLastStepDeaths(cause), getTotalDeaths(cause)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package Field;
+
+import java.util.Arrays;
+
+//finds a random free spot in a square by looking at all of it at once instead of guessing spots one by one
+//the square is cut into cells with one candidate spot each, all shifted by the same random offset so every point can be picked
+//nearby animals block the candidates they cover, then one of the candidates left is picked at random
+//candidates are checked like Field.isEmpty checks a spot, so a picked spot is always free
+//holds the state of one search at a time, so one raster per thread
+public class OccupancyRaster implements SpatialIndex.Visitor {
+    //random spots worth guessing before building a raster, a guess is cheaper while there is plenty of room
+    public static final int QUICK_TRIES = 8;
+    //candidates per try left, a candidate only costs a few array writes while a try is a query of every index
+    //a finer raster misses fewer small gaps between animals
+    public static final int CANDIDATES_PER_TRY = 4;
+
+    private boolean[] blocked = new boolean[0]; //candidates that are not free, row by row
+    private int side = 0; //candidates along each side of the square
+    private double cell_size;
+    private double first_x, first_y; //candidate of the first cell
+    private double free_radius;
+    private double center_x, center_y, reach;
+
+    //lay out candidates for a number of tries over a square around a point, same square as
+    //x + (random - 0.5) * spawn_radius gives, that are free if a circle of free_radius fits there
+    public void begin(double x, double y, double spawn_radius, double free_radius, int tries, RandomStream rand) {
+        side = Math.max(1, (int) Math.ceil(Math.sqrt(tries * CANDIDATES_PER_TRY)));
+        cell_size = spawn_radius / side;
+        first_x = x - spawn_radius / 2 + rand.nextDouble() * cell_size;
+        first_y = y - spawn_radius / 2 + rand.nextDouble() * cell_size;
+        this.free_radius = free_radius;
+        center_x = x;
+        center_y = y;
+        reach = spawn_radius * Math.sqrt(0.5) + free_radius; //from the center to the corners, plus the spot itself
+        if (blocked.length < side * side) {blocked = new boolean[side * side];}
+        Arrays.fill(blocked, 0, side * side, false);
+    }
+
+    //circle that holds every candidate spot, entries of an index that intersect it are the ones to visit
+    public double getCenterX() {return center_x;}
+    public double getCenterY() {return center_y;}
+    public double getReach() {return reach;}
+
+    //block candidates that are not inside a field of given dimensions, same test as Field.isLegalLocation
+    public void blockOutside(double width, double height) {
+        for (int j = 0; j < side; j++) {
+            double y = first_y + j * cell_size;
+            int row = j * side;
+            if (!(y > 0 && y < height)) {
+                Arrays.fill(blocked, row, row + side, true);
+                continue;
+            }
+            for (int i = 0; i < side; i++) { //only near the left and right edges
+                double x = first_x + i * cell_size;
+                if (x > 0) {break;}
+                blocked[row + i] = true;
+            }
+            for (int i = side - 1; i >= 0; i--) {
+                double x = first_x + i * cell_size;
+                if (x < width) {break;}
+                blocked[row + i] = true;
+            }
+        }
+    }
+
+    //block the candidates an entry covers, each row only looks at the cells under the chord of the circle
+    @Override
+    public void visit(int id, double x, double y, double radius) {
+        double touching = free_radius + radius;
+        if (cell_size == 0) { //all candidates are the same spot
+            if (covers(first_x, first_y, x, y, touching)) {Arrays.fill(blocked, 0, side * side, true);}
+            return;
+        }
+        int min_j = first(y - touching, first_y), max_j = last(y + touching, first_y);
+        for (int j = min_j; j <= max_j; j++) {
+            double candidate_y = first_y + j * cell_size;
+            double half_chord = Math.sqrt(Math.max(0, touching * touching - (candidate_y - y) * (candidate_y - y)));
+            int min_i = first(x - half_chord, first_x), max_i = last(x + half_chord, first_x);
+            if (min_i > max_i) {continue;}
+            //the ends of the chord can lie right on the circle, so they are checked exactly, the cells between are inside
+            int row = j * side;
+            if (covers(first_x + min_i * cell_size, candidate_y, x, y, touching)) {blocked[row + min_i] = true;}
+            if (covers(first_x + max_i * cell_size, candidate_y, x, y, touching)) {blocked[row + max_i] = true;}
+            if (max_i - min_i > 1) {Arrays.fill(blocked, row + min_i + 1, row + max_i, true);}
+        }
+    }
+
+    //is a candidate inside a circle, the same test as SpatialIndex.overlapsAny
+    private static boolean covers(double candidate_x, double candidate_y, double x, double y, double touching) {
+        return Vector2.distanceSquared(candidate_x, candidate_y, x, y) < touching * touching;
+    }
+
+    //pick one of the free candidates at random and write it into result, returns false if none is free
+    public boolean pick(RandomStream rand, Vector2 result) {
+        int cells = side * side;
+        int free = 0;
+        for (int c = 0; c < cells; c++) {if (!blocked[c]) {free++;}}
+        if (free == 0) {return false;}
+        int chosen = rand.nextInt(free);
+        for (int c = 0; c < cells; c++) {
+            if (blocked[c]) {continue;}
+            if (chosen-- == 0) {
+                result.set(first_x + (c % side) * cell_size, first_y + (c / side) * cell_size);
+                break;
+            }
+        }
+        return true;
+    }
+
+    //number of candidates of the current search
+    public int size() {return side * side;}
+
+    //range of cells whose candidate lies between two coordinates
+    private int first(double low, double first) {
+        return Math.max(0, (int) Math.ceil((low - first) / cell_size));
+    }
+    private int last(double high, double first) {
+        return Math.min(side - 1, (int) Math.floor((high - first) / cell_size));
+    }
+}
@@ -0,0 +1,69 @@
+package Field;
+
+//stream of random numbers that can be split into independent streams, same algorithm as java.util.SplittableRandom
+//unlike SplittableRandom its state and gamma can be read and set, so every animal can keep its own stream as two longs in the store
+//the same seed always gives the same numbers, and a stream is never shared between threads
+public class RandomStream {
+    public static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L; //gamma of streams made from a seed, the golden ratio
+    private static final double DOUBLE_UNIT = 0x1.0p-53; //1 / 2^53
+
+    private long state;
+    private long gamma; //odd step between states, split streams get their own so they do not walk along the same sequence
+
+    public RandomStream(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    public RandomStream(long state, long gamma) {
+        this.state = state;
+        this.gamma = gamma;
+    }
+
+    //get and set the state, a stream set to a saved state continues where it was
+    public long getState() {return state;}
+    public void setState(long state) {this.state = state;}
+    public long getGamma() {return gamma;}
+
+    //set the state and the gamma, to continue a stream that was split off another one
+    public void set(long state, long gamma) {
+        this.state = state;
+        this.gamma = gamma;
+    }
+
+    //next random long, any value is equally likely
+    public long nextLong() {
+        return mix(state += gamma);
+    }
+
+    //next random double between 0 (inclusive) and 1 (exclusive)
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    //next random int between 0 (inclusive) and bound (exclusive)
+    public int nextInt(int bound) {
+        return (int) (nextDouble() * bound);
+    }
+
+    //split off a new stream that does not follow this one, for example for a newborn animal
+    //its state and gamma are written into two arrays at an index, so the store can keep them without making a stream object
+    public void split(long[] states, long[] gammas, int index) {
+        states[index] = nextLong();
+        gammas[index] = mixGamma(state += gamma);
+    }
+
+    //scramble the bits of a value, used to turn states into numbers and to derive seeds
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    //turn a value into a gamma, odd and with enough bit changes that its states are spread out
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
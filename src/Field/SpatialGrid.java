@@ -0,0 +1,191 @@
+package Field;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+//uniform grid that buckets entries by position so nearby entries can be found without looking at all of them
+public class SpatialGrid implements SpatialIndex {
+    //size of a cell, around the largest interaction range of an animal
+    public static final double DEFAULT_CELL_SIZE = 4.0;
+
+    private final double cell_size; //width and height of one bucket
+    private final int columns, rows; //number of buckets in each direction
+
+    private int[][] cells; //ids stored in each bucket
+    private int[] cell_counts; //how many ids are in each bucket
+    private int size = 0; //total number of entries
+    private double max_radius = 0; //largest radius of any entry, decides how far overlap checks have to look
+
+    //position and size of every entry, indexed by id
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] radii = new double[16];
+
+    //grid covering a field of given dimensions, cell size should be around the largest interaction range
+    public SpatialGrid(double width, double height, double cell_size) {
+        this.cell_size = cell_size;
+        this.columns = Math.max(1, (int)Math.ceil(width / cell_size));
+        this.rows = Math.max(1, (int)Math.ceil(height / cell_size));
+        cells = new int[columns * rows][];
+        cell_counts = new int[columns * rows];
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(cell_counts, 0);
+        size = 0;
+        max_radius = 0;
+    }
+
+    @Override
+    public int size() {return size;}
+
+    @Override
+    public void insert(int id, double x, double y, double radius) {
+        if (id >= xs.length) { //grow position storage
+            int length = Math.max(id + 1, xs.length * 2);
+            xs = Arrays.copyOf(xs, length);
+            ys = Arrays.copyOf(ys, length);
+            radii = Arrays.copyOf(radii, length);
+        }
+        xs[id] = x;
+        ys[id] = y;
+        radii[id] = radius;
+        max_radius = Math.max(max_radius, radius);
+        int cell = cellIndex(cellX(x), cellY(y));
+        int[] bucket = cells[cell];
+        if (bucket == null) {
+            bucket = new int[4];
+            cells[cell] = bucket;
+        } else if (cell_counts[cell] == bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+            cells[cell] = bucket;
+        }
+        bucket[cell_counts[cell]++] = id;
+        size++;
+    }
+
+    @Override
+    public boolean remove(int id) {
+        if (id >= xs.length) {return false;}
+        int cell = cellIndex(cellX(xs[id]), cellY(ys[id]));
+        int[] bucket = cells[cell];
+        int count = cell_counts[cell];
+        for (int i = 0; i < count; i++) {
+            if (bucket[i] == id) {
+                bucket[i] = bucket[count - 1]; //order inside a bucket does not matter
+                cell_counts[cell]--;
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void move(int id, double x, double y) {
+        if (remove(id)) {insert(id, x, y, radii[id]);}
+    }
+
+    //search rings of cells around the point until no further ring can hold a closer entry
+    @Override
+    public int nearest(double x, double y, IntPredicate filter) {
+        if (size == 0) {return -1;}
+        int cx = cellX(x);
+        int cy = cellY(y);
+        int max_ring = Math.max(Math.max(cx, columns - 1 - cx), Math.max(cy, rows - 1 - cy));
+        int best = -1;
+        double best_distance = Double.MAX_VALUE; //squared, to skip the square root
+        for (int r = 0; r <= max_ring; r++) {
+            if (best != -1) {
+                double bound = ringLowerBound(x, y, cx, cy, r);
+                if (bound * bound > best_distance) {break;} //nothing further out can be closer
+            }
+            int min_y = Math.max(cy - r, 0);
+            int max_y = Math.min(cy + r, rows - 1);
+            for (int j = min_y; j <= max_y; j++) {
+                //only the outline of the ring, inner cells were visited by earlier rings
+                int step = (j == cy - r || j == cy + r) ? 1 : 2 * r;
+                for (int i = cx - r; i <= cx + r; i += step) {
+                    if (i < 0 || i >= columns) {continue;}
+                    int cell = cellIndex(i, j);
+                    int[] bucket = cells[cell];
+                    for (int k = 0; k < cell_counts[cell]; k++) {
+                        int id = bucket[k];
+                        if (filter != null && !filter.test(id)) {continue;}
+                        double distance = Vector2.distanceSquared(xs[id], ys[id], x, y);
+                        if (distance < best_distance || (distance == best_distance && id < best)) {
+                            best_distance = distance;
+                            best = id;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    //only cells within reach of the circle plus the largest entry radius are looked at
+    @Override
+    public boolean overlapsAny(double x, double y, double radius) {
+        if (size == 0) {return false;}
+        double reach = radius + max_radius;
+        int min_x = cellX(x - reach), max_x = cellX(x + reach);
+        int min_y = cellY(y - reach), max_y = cellY(y + reach);
+        for (int j = min_y; j <= max_y; j++) {
+            for (int i = min_x; i <= max_x; i++) {
+                int cell = cellIndex(i, j);
+                int[] bucket = cells[cell];
+                for (int k = 0; k < cell_counts[cell]; k++) {
+                    int id = bucket[k];
+                    double touching = radius + radii[id];
+                    if (Vector2.distanceSquared(xs[id], ys[id], x, y) < touching * touching) {return true;} //2 circles intersect
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void visitOverlapping(double x, double y, double radius, Visitor visitor) {
+        if (size == 0) {return;}
+        double reach = radius + max_radius;
+        int min_x = cellX(x - reach), max_x = cellX(x + reach);
+        int min_y = cellY(y - reach), max_y = cellY(y + reach);
+        for (int j = min_y; j <= max_y; j++) {
+            for (int i = min_x; i <= max_x; i++) {
+                int cell = cellIndex(i, j);
+                int[] bucket = cells[cell];
+                for (int k = 0; k < cell_counts[cell]; k++) {
+                    int id = bucket[k];
+                    double touching = radius + radii[id];
+                    if (Vector2.distanceSquared(xs[id], ys[id], x, y) < touching * touching) {visitor.visit(id, xs[id], ys[id], radii[id]);}
+                }
+            }
+        }
+    }
+
+    //smallest possible distance from a point to any cell in a ring around its cell
+    private double ringLowerBound(double x, double y, int cx, int cy, int r) {
+        //cells of ring r lie outside the box made of the rings before it
+        double min_x = (cx - r + 1) * cell_size;
+        double max_x = (cx + r) * cell_size;
+        double min_y = (cy - r + 1) * cell_size;
+        double max_y = (cy + r) * cell_size;
+        double bound = Math.min(Math.min(x - min_x, max_x - x), Math.min(y - min_y, max_y - y));
+        return Math.max(bound, 0);
+    }
+
+    //bucket coordinates, points outside the grid go to the closest edge bucket
+    private int cellX(double x) {
+        int cx = (int)Math.floor(x / cell_size);
+        return Math.min(Math.max(cx, 0), columns - 1);
+    }
+    private int cellY(double y) {
+        int cy = (int)Math.floor(y / cell_size);
+        return Math.min(Math.max(cy, 0), rows - 1);
+    }
+    private int cellIndex(int cx, int cy) {
+        return cy * columns + cx;
+    }
+}
@@ -0,0 +1,56 @@
+package Field;
+
+import java.util.function.IntPredicate;
+
+//structure that finds circular entries by position without checking all of them
+//entries are identified by an integer id (the store handle of an animal in a field) and remember their own position and radius
+//nearest, overlapsAny and visitOverlapping must be safe to call from several threads at once while nothing changes the index,
+//the tiles of a parallel step all query the current field at the same time, so queries may not share scratch state
+public interface SpatialIndex {
+
+    //available implementations, pick one per scenario with the SpatialIndexBenchmark
+    enum Type {
+        GRID, //uniform grid of buckets, best for dense fields of similar sized animals
+        KD_TREE, //2d tree, best for sparse or clumped fields
+        SWEEP_AND_PRUNE; //entries sorted along x, cheap to build for few animals
+
+        //create an empty index for a field of given dimensions
+        public SpatialIndex create(double width, double height) {
+            switch (this) {
+                case KD_TREE: return new KdTreeIndex();
+                case SWEEP_AND_PRUNE: return new SweepAndPruneIndex();
+                default: return new SpatialGrid(width, height, SpatialGrid.DEFAULT_CELL_SIZE);
+            }
+        }
+    }
+
+    //remove all entries
+    void clear();
+
+    //number of entries
+    int size();
+
+    //add a circular entry at a position
+    void insert(int id, double x, double y, double radius);
+
+    //remove an entry, return false if it was not in the index
+    boolean remove(int id);
+
+    //update the position of an entry
+    void move(int id, double x, double y);
+
+    //get the id of the entry closest to a point that is accepted by the filter (null accepts all), -1 if none
+    //ties are broken by lowest id so the result is the same as a linear scan in id order
+    int nearest(double x, double y, IntPredicate filter);
+
+    //check if a circle intersects any entry, a radius of 0 checks if a point is inside any entry
+    boolean overlapsAny(double x, double y, double radius);
+
+    //call the visitor with every entry that intersects a circle, in no particular order
+    void visitOverlapping(double x, double y, double radius, Visitor visitor);
+
+    //gets the entries found by visitOverlapping
+    interface Visitor {
+        void visit(int id, double x, double y, double radius);
+    }
+}
@@ -0,0 +1,229 @@
+package Field;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+//entries kept sorted by x, queries only look at the slice of entries whose x is within reach
+//new entries go into a small unsorted tail that is merged into the sorted part once it grows, so inserts stay cheap
+public class SweepAndPruneIndex implements SpatialIndex {
+    private static final int MIN_TAIL = 32; //smallest tail size before merging
+
+    //sorted part, removed or moved entries stay in it until the next merge
+    private int[] sorted_ids = new int[16];
+    private double[] sorted_xs = new double[16];
+    private int[] sorted_versions = new int[16]; //version of the entry when it was added
+    private int sorted_count = 0;
+    //second set of arrays to merge into, swapped with the sorted part after every merge
+    private int[] spare_ids = new int[16];
+    private double[] spare_xs = new double[16];
+    private int[] spare_versions = new int[16];
+
+    //unsorted tail of recently added entries
+    private int[] tail_ids = new int[MIN_TAIL];
+    private int[] tail_versions = new int[MIN_TAIL];
+    private int tail_count = 0;
+
+    //position and size of every entry, indexed by id
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] radii = new double[16];
+    private int[] versions = new int[16]; //bumped on every removal, so old copies of an entry can be told apart
+    private boolean[] present = new boolean[16];
+
+    private int size = 0;
+    private double max_radius = 0;
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < sorted_count; i++) {present[sorted_ids[i]] = false;}
+        for (int i = 0; i < tail_count; i++) {present[tail_ids[i]] = false;}
+        sorted_count = 0;
+        tail_count = 0;
+        size = 0;
+        max_radius = 0;
+    }
+
+    @Override
+    public int size() {return size;}
+
+    @Override
+    public void insert(int id, double x, double y, double radius) {
+        if (id >= xs.length) { //grow entry storage
+            int length = Math.max(id + 1, xs.length * 2);
+            xs = Arrays.copyOf(xs, length);
+            ys = Arrays.copyOf(ys, length);
+            radii = Arrays.copyOf(radii, length);
+            versions = Arrays.copyOf(versions, length);
+            present = Arrays.copyOf(present, length);
+        }
+        xs[id] = x;
+        ys[id] = y;
+        radii[id] = radius;
+        present[id] = true;
+        max_radius = Math.max(max_radius, radius);
+        size++;
+
+        if (tail_count == tail_ids.length) {merge();}
+        tail_ids[tail_count] = id;
+        tail_versions[tail_count] = versions[id];
+        tail_count++;
+    }
+
+    @Override
+    public boolean remove(int id) {
+        if (id >= present.length || !present[id]) {return false;}
+        present[id] = false;
+        versions[id]++; //copies of it in the sorted part or tail are now stale
+        size--;
+        return true;
+    }
+
+    @Override
+    public void move(int id, double x, double y) {
+        if (remove(id)) {insert(id, x, y, radii[id]);}
+    }
+
+    @Override
+    public int nearest(double x, double y, IntPredicate filter) {
+        if (size == 0) {return -1;}
+        int best = -1;
+        double best_distance = Double.MAX_VALUE; //squared, to skip the square root
+        for (int i = 0; i < tail_count; i++) { //tail is small, check all of it
+            int id = tail_ids[i];
+            if (!isCurrent(id, tail_versions[i]) || (filter != null && !filter.test(id))) {continue;}
+            double distance = distance(id, x, y);
+            if (distance < best_distance || (distance == best_distance && id < best)) {
+                best_distance = distance;
+                best = id;
+            }
+        }
+        //sweep outwards from x in both directions until the x gap alone is larger than the best distance
+        int start = lowerBound(x);
+        for (int i = start; i < sorted_count && gapSquared(sorted_xs[i], x) <= best_distance; i++) {
+            int id = sorted_ids[i];
+            if (!isCurrent(id, sorted_versions[i]) || (filter != null && !filter.test(id))) {continue;}
+            double distance = distance(id, x, y);
+            if (distance < best_distance || (distance == best_distance && id < best)) {
+                best_distance = distance;
+                best = id;
+            }
+        }
+        for (int i = start - 1; i >= 0 && gapSquared(sorted_xs[i], x) <= best_distance; i--) {
+            int id = sorted_ids[i];
+            if (!isCurrent(id, sorted_versions[i]) || (filter != null && !filter.test(id))) {continue;}
+            double distance = distance(id, x, y);
+            if (distance < best_distance || (distance == best_distance && id < best)) {
+                best_distance = distance;
+                best = id;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public boolean overlapsAny(double x, double y, double radius) {
+        if (size == 0) {return false;}
+        for (int i = 0; i < tail_count; i++) {
+            int id = tail_ids[i];
+            if (isCurrent(id, tail_versions[i]) && overlaps(id, x, y, radius)) {return true;}
+        }
+        double reach = radius + max_radius;
+        for (int i = lowerBound(x - reach); i < sorted_count && sorted_xs[i] <= x + reach; i++) {
+            int id = sorted_ids[i];
+            if (isCurrent(id, sorted_versions[i]) && overlaps(id, x, y, radius)) {return true;}
+        }
+        return false;
+    }
+
+    @Override
+    public void visitOverlapping(double x, double y, double radius, Visitor visitor) {
+        if (size == 0) {return;}
+        for (int i = 0; i < tail_count; i++) {
+            int id = tail_ids[i];
+            if (isCurrent(id, tail_versions[i]) && overlaps(id, x, y, radius)) {visitor.visit(id, xs[id], ys[id], radii[id]);}
+        }
+        double reach = radius + max_radius;
+        for (int i = lowerBound(x - reach); i < sorted_count && sorted_xs[i] <= x + reach; i++) {
+            int id = sorted_ids[i];
+            if (isCurrent(id, sorted_versions[i]) && overlaps(id, x, y, radius)) {visitor.visit(id, xs[id], ys[id], radii[id]);}
+        }
+    }
+
+    //is a stored copy of an entry still the live one
+    private boolean isCurrent(int id, int version) {
+        return present[id] && versions[id] == version;
+    }
+
+    //squared distance from an entry to a point
+    private double distance(int id, double x, double y) {
+        return Vector2.distanceSquared(xs[id], ys[id], x, y);
+    }
+    private static double gapSquared(double a, double b) {
+        return (a - b) * (a - b);
+    }
+    //do an entry and a circle intersect
+    private boolean overlaps(int id, double x, double y, double radius) {
+        double reach = radius + radii[id];
+        return distance(id, x, y) < reach * reach;
+    }
+
+    //first position in the sorted part with an x not smaller than the given one
+    private int lowerBound(double x) {
+        int low = 0, high = sorted_count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted_xs[middle] < x) {low = middle + 1;} else {high = middle;}
+        }
+        return low;
+    }
+
+    //sort the tail and merge it into the sorted part, dropping stale copies on the way
+    private void merge() {
+        //insertion sort, the tail is small
+        for (int i = 1; i < tail_count; i++) {
+            int id = tail_ids[i], version = tail_versions[i];
+            int j = i - 1;
+            while (j >= 0 && xs[tail_ids[j]] > xs[id]) {
+                tail_ids[j + 1] = tail_ids[j];
+                tail_versions[j + 1] = tail_versions[j];
+                j--;
+            }
+            tail_ids[j + 1] = id;
+            tail_versions[j + 1] = version;
+        }
+        if (spare_ids.length < sorted_count + tail_count) {
+            int length = Math.max(spare_ids.length * 2, sorted_count + tail_count);
+            spare_ids = new int[length];
+            spare_xs = new double[length];
+            spare_versions = new int[length];
+        }
+        int[] merged_ids = spare_ids;
+        double[] merged_xs = spare_xs;
+        int[] merged_versions = spare_versions;
+        int count = 0, a = 0, b = 0;
+        while (a < sorted_count || b < tail_count) {
+            boolean take_sorted = b >= tail_count || (a < sorted_count && sorted_xs[a] <= xs[tail_ids[b]]);
+            int id = take_sorted ? sorted_ids[a] : tail_ids[b];
+            int version = take_sorted ? sorted_versions[a++] : tail_versions[b++];
+            if (!isCurrent(id, version)) {continue;}
+            merged_ids[count] = id;
+            merged_xs[count] = xs[id];
+            merged_versions[count] = version;
+            count++;
+        }
+        spare_ids = sorted_ids;
+        spare_xs = sorted_xs;
+        spare_versions = sorted_versions;
+        sorted_ids = merged_ids;
+        sorted_xs = merged_xs;
+        sorted_versions = merged_versions;
+        sorted_count = count;
+        tail_count = 0;
+        //keep the tail around the square root of the size, so merges stay rare but the tail stays cheap to scan
+        int tail_length = Math.max(MIN_TAIL, (int)Math.sqrt(count));
+        if (tail_length != tail_ids.length) {
+            tail_ids = new int[tail_length];
+            tail_versions = new int[tail_length];
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package Field;
+
+import java.util.Arrays;
+
+//running mean, variance and histogram of a trait, like a speed gene, kept up to date as animals come and go
+//values are added when an animal gets the trait and removed when it leaves, so reading never walks the population
+//mean and variance use Welford's method, which also works backwards to take a value out again
+public class TraitStats {
+    private final double bin_width;
+    private long count = 0;
+    private double mean = 0;
+    private double m2 = 0; //sum of squared differences from the mean
+
+    //animals in each bin, bin b holds values from (first_bin + b) * bin_width up to the next bin
+    //grows to whatever range the values cover
+    private int[] bins = new int[0];
+    private long first_bin = 0;
+
+    //bins of a given width, the histogram starts wherever the first value is
+    public TraitStats(double bin_width) {
+        this.bin_width = bin_width;
+    }
+
+    //an animal with a value joined
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        int bin = binOf(value); //may grow the bins, so not inside the index expression
+        bins[bin]++;
+    }
+
+    //an animal with a value that was added left
+    public void remove(double value) {
+        if (count <= 1) { //start over exactly instead of carrying rounding errors
+            clear();
+            return;
+        }
+        double old_mean = (count * mean - value) / (count - 1);
+        m2 -= (value - mean) * (value - old_mean);
+        mean = old_mean;
+        count--;
+        int bin = binOf(value);
+        bins[bin]--;
+    }
+
+    //forget all values
+    public void clear() {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        bins = new int[0];
+        first_bin = 0;
+    }
+
+    public long getCount() {return count;}
+    public double getMean() {return mean;}
+    //population variance, 0 with fewer than 2 values
+    public double getVariance() {return count < 2 ? 0 : Math.max(0, m2 / count);}
+    public double getStandardDeviation() {return Math.sqrt(getVariance());}
+
+    //histogram, bin b counts values from getBinStart(b) up to getBinStart(b + 1)
+    public int getBinCount() {return bins.length;}
+    public int getBin(int bin) {return bins[bin];}
+    public double getBinStart(int bin) {return (first_bin + bin) * bin_width;}
+
+    //index of the bin of a value, growing the histogram if it does not reach that far yet
+    private int binOf(double value) {
+        long bin = (long) Math.floor(value / bin_width);
+        if (bins.length == 0) {
+            bins = new int[1];
+            first_bin = bin;
+        } else if (bin < first_bin) {
+            int missing = (int) (first_bin - bin);
+            int[] grown = new int[bins.length + missing];
+            System.arraycopy(bins, 0, grown, missing, bins.length);
+            bins = grown;
+            first_bin = bin;
+        } else if (bin - first_bin >= bins.length) {
+            bins = Arrays.copyOf(bins, (int) (bin - first_bin) + 1);
+        }
+        return (int) (bin - first_bin);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.4f sd=%.4f", count, mean, getStandardDeviation());
+    }
+}
@@ -38,6 +38,29 @@ public class Vector2  {
         return new Vector2(this.x/b.x, this.y/b.y);
     }
 
+    //in place operators, change this vector instead of making a new one
+    public Vector2 set(double x, double y){
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+    public Vector2 set(Vector2 b){
+        return set(b.x, b.y);
+    }
+    public Vector2 addLocal(Vector2 b){
+        return set(this.x+b.x, this.y+b.y);
+    }
+    public Vector2 subtractLocal(Vector2 b){
+        return set(this.x-b.x, this.y-b.y);
+    }
+    public Vector2 multiplyLocal(double scalar){
+        return set(this.x*scalar, this.y*scalar);
+    }
+    public Vector2 normalizeLocal(){
+        double length = length();
+        return set(this.x/length, this.y/length);
+    }
+
     //comparison
     public boolean equalsExact(Vector2 b){
         return this.x == b.x && this.y == b.y ;
@@ -52,11 +75,28 @@ public class Vector2  {
     }
 
     public double distance(Vector2 b){
-        return Math.sqrt(Math.pow((this.x-b.x),2)+Math.pow((this.y-b.y),2));
+        return distance(this.x, this.y, b.x, b.y);
+    }
+    //cheaper than distance when only comparing distances
+    public double distanceSquared(Vector2 b){
+        return distanceSquared(this.x, this.y, b.x, b.y);
     }
 
     public double length(){
-        return Math.sqrt(x*x + y*y );
+        return length(x, y);
+    }
+
+    //helpers on raw coordinates, for code that does not want to make vectors
+    public static double distance(double x1, double y1, double x2, double y2){
+        return Math.sqrt(distanceSquared(x1, y1, x2, y2));
+    }
+    public static double distanceSquared(double x1, double y1, double x2, double y2){
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return dx*dx + dy*dy;
+    }
+    public static double length(double x, double y){
+        return Math.sqrt(x*x + y*y);
     }
 
     public Vector2 normalized(){
@@ -64,13 +104,21 @@ public class Vector2  {
     }
 
     //random components between -0.5 and 0.5
-    public static Vector2 randomVector(){
-        return new Vector2(Math.random() - 0.5, Math.random() - 0.5);
+    public static Vector2 randomVector(RandomStream rand){
+        return new Vector2(rand.nextDouble() - 0.5, rand.nextDouble() - 0.5);
+    }
+
+    //same, but written into an existing vector
+    public static Vector2 randomVector(RandomStream rand, Vector2 result){
+        return result.set(rand.nextDouble() - 0.5, rand.nextDouble() - 0.5);
     }
 
     //get random normalized direction
-    public static Vector2 randomDirection(){
-        return randomVector().normalized();
+    public static Vector2 randomDirection(RandomStream rand){
+        return randomVector(rand).normalized();
+    }
+    public static Vector2 randomDirection(RandomStream rand, Vector2 result){
+        return randomVector(rand, result).normalizeLocal();
     }
 
     public double dot(Vector2 b){
@@ -78,8 +126,11 @@ public class Vector2  {
     }
 
     //move in direction by distance
-    Vector2 move(Vector2 dir, double dist){
-        return this.add(dir.multiply(new Vector2(dist)));
+    public Vector2 move(Vector2 dir, double dist){
+        return new Vector2(x + dir.x*dist, y + dir.y*dist);
+    }
+    public Vector2 moveLocal(Vector2 dir, double dist){
+        return set(x + dir.x*dist, y + dir.y*dist);
     }
 
     //return minimum values from both vectors
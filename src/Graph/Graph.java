@@ -1,11 +1,11 @@
 package Graph;
 
-import java.util.HashMap;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Objects;
 
-import Animals.Animal;
 import processing.core.PApplet;
 import processing.core.PFont;
+import processing.core.PGraphics;
 
 /**
  * The Graph.Graph class represents and draws a 2d line graph
@@ -20,15 +20,27 @@ public class Graph {
 	private float dataxrange, datayrange;
 	private float yshiftval, yscaleval, xshiftval, xscaleval;
 	private boolean CONNECTED = true;
+	// stretch the x range when points go past its end, so the whole
+	// history stays in view, otherwise those points are ignored
 	private boolean wrap = true;
 	
-	// used by the plotdata method to tell itself
-	// when it needs to clear data during a wrap
-	private boolean cleardata = false;
-	
-	// DataSets for all past numbers of animals at any timestep
-	private HashMap<Object, ScaledDataSet> dataSets;
-	private HashMap<Object, Integer> colorMap;
+	// DataSets for all past numbers of animals at any timestep, indexed by series
+	// (the species id), null for series that were never plotted
+	private ScaledDataSet[] dataSets = new ScaledDataSet[0];
+	private int[] colorMap = new int[0];
+	private boolean[] hasColor = new boolean[0];
+
+	// The axes, labels and title, drawn once and only again when they change.
+	private PGraphics frameLayer;
+	private boolean frameDirty = true;
+	private String drawnTitle, drawnXLabel, drawnYLabel;
+	// The plotted points. New points are drawn on top of it each frame, it is
+	// only drawn again from the data sets after a rescale, a wrap or a clear.
+	private PGraphics plotLayer;
+	private boolean plotDirty = true;
+	private boolean drawnLines, drawnPoints;
+	private int drawnPointSize;
+	private long[] pointsDrawn = new long[0]; // getPointsAdded of each data set when it was last drawn
 	private static int[] defaultColors;
 	private int nextColor = 0;
 	public boolean drawLines = false;
@@ -54,8 +66,6 @@ public class Graph {
 		this.ymax = ymax;
 		setDataRanges(dataxmin, dataxmax, dataymin, dataymax);
 		this.graphicsWindow = p;
-		this.dataSets = new HashMap<Object, ScaledDataSet>();
-		this.colorMap = new HashMap<Object, Integer>();
 		this.defaultColors = new int[3];
 		this.defaultColors[0] = p.color(255, 100, 100);
 		this.defaultColors[1] = p.color(100, 100, 255);
@@ -78,6 +88,15 @@ public class Graph {
 		this.yscaleval = (ymax - ymin) / (dataymax - dataymin);
 		this.yshiftval = ymin - yscaleval * dataymin;
 
+		// the data sets keep their points unscaled, so they only need new scaling
+		for (ScaledDataSet d : dataSets) {
+			if (d != null) {
+				setScaling(d);
+			}
+		}
+		frameDirty = true;
+		plotDirty = true;
+
 		// this.xscaleval = (float) (dataxmax - dataxmin) / (float) (xmax - xmin);
 		// this.xshiftval = dataxmin - xscaleval * xmin;
 		// this.yscaleval = (dataymax - dataymin) / (ymax - ymin);
@@ -89,122 +108,190 @@ public class Graph {
 		this.xmax = xmax;
 		this.ymin = ymin;
 		this.ymax = ymax;
+		setDataRanges(dataxmin, dataxmax, dataymin, dataymax);
 	}
 
 	public void draw() {
-		int c;
-		ScaledDataSet d;
-
-		this.drawAxes();
-		drawTitle();
-		drawXAxisLabel();
-		drawYAxisLabel();
-		drawXIncrements();
-		drawYIncrements();
-		drawXIncrementLabels();
-		drawYIncrementLabels();
-
-		for (Object f : dataSets.keySet()) {
-			d = dataSets.get(f);
-			c = this.colorMap.get(f);
-			graphicsWindow.fill(c); // change the color
-			graphicsWindow.stroke(c); // change the color
-			for (int i = 1; i < d.getSize(); i++) {
-				if (drawLines) {
-					graphicsWindow.line(d.getx(i - 1), d.gety(i - 1), d.getx(i), d.gety(i));
-				}
-				if (drawPoints) {
-					graphicsWindow.ellipse(d.getx(i), d.gety(i), pointsize, pointsize);
-				}
-			}
+		if (frameLayer == null) {
+			frameLayer = graphicsWindow.createGraphics(graphicsWindow.width, graphicsWindow.height);
+			plotLayer = graphicsWindow.createGraphics(graphicsWindow.width, graphicsWindow.height);
+		}
+		if (frameDirty || !Objects.equals(title, drawnTitle) || !Objects.equals(xlabel, drawnXLabel)
+				|| !Objects.equals(ylabel, drawnYLabel)) {
+			renderFrame();
+		}
+		if (drawLines != drawnLines || drawPoints != drawnPoints || pointsize != drawnPointSize) {
+			plotDirty = true;
+		}
+		if (plotDirty) {
+			renderAllPoints();
+		} else {
+			renderNewPoints();
 		}
+		graphicsWindow.image(frameLayer, 0, 0);
+		graphicsWindow.image(plotLayer, 0, 0);
 		graphicsWindow.stroke(0);
 	}
 
-	private void drawAxes() {
-		graphicsWindow.stroke(graphicsWindow.color(0));
-		graphicsWindow.line(xmin, ymin, xmin, ymax);
-		graphicsWindow.line(xmin, ymax, xmax, ymax);
+	// Draw the axes, labels and title into the frame layer.
+	private void renderFrame() {
+		frameLayer.beginDraw();
+		frameLayer.clear();
+		frameLayer.textFont(font);
+		this.drawAxes(frameLayer);
+		drawTitle(frameLayer);
+		drawXAxisLabel(frameLayer);
+		drawYAxisLabel(frameLayer);
+		drawXIncrements(frameLayer);
+		drawYIncrements(frameLayer);
+		drawXIncrementLabels(frameLayer);
+		drawYIncrementLabels(frameLayer);
+		frameLayer.endDraw();
+		drawnTitle = title;
+		drawnXLabel = xlabel;
+		drawnYLabel = ylabel;
+		frameDirty = false;
+	}
+
+	// Draw every point of every data set into the plot layer again.
+	private void renderAllPoints() {
+		plotLayer.beginDraw();
+		plotLayer.clear();
+		for (int f = 0; f < dataSets.length; f++) {
+			ScaledDataSet d = dataSets[f];
+			if (d == null) {
+				continue;
+			}
+			drawPoints(plotLayer, d, 1, this.colorMap[f]);
+			pointsDrawn[f] = d.getPointsAdded();
+		}
+		plotLayer.endDraw();
+		drawnLines = drawLines;
+		drawnPoints = drawPoints;
+		drawnPointSize = pointsize;
+		plotDirty = false;
 	}
 
-	private void drawTitle() {
+	// Draw only the points added since the last frame on top of the plot layer.
+	private void renderNewPoints() {
+		boolean drawing = false;
+		for (int f = 0; f < dataSets.length; f++) {
+			ScaledDataSet d = dataSets[f];
+			if (d == null || d.getPointsAdded() == pointsDrawn[f]) {
+				continue;
+			}
+			if (!drawing) {
+				plotLayer.beginDraw();
+				drawing = true;
+			}
+			// the newest points are at the end, older ones may have moved into buckets
+			int fresh = (int) Math.min(d.getPointsAdded() - pointsDrawn[f], d.getSize());
+			drawPoints(plotLayer, d, d.getSize() - fresh, this.colorMap[f]);
+			pointsDrawn[f] = d.getPointsAdded();
+		}
+		if (drawing) {
+			plotLayer.endDraw();
+		}
+	}
+
+	// Draw the points of a data set from an index on, each joined to the one before it.
+	private void drawPoints(PGraphics g, ScaledDataSet d, int from, int c) {
+		g.fill(c); // change the color
+		g.stroke(c); // change the color
+		for (int i = Math.max(1, from); i < d.getSize(); i++) {
+			if (drawLines) {
+				g.line(d.getx(i - 1), d.gety(i - 1), d.getx(i), d.gety(i));
+			}
+			if (drawPoints) {
+				g.ellipse(d.getx(i), d.gety(i), pointsize, pointsize);
+			}
+		}
+	}
+
+	private void drawAxes(PGraphics g) {
+		g.stroke(g.color(0));
+		g.line(xmin, ymin, xmin, ymax);
+		g.line(xmin, ymax, xmax, ymax);
+	}
+
+	private void drawTitle(PGraphics g) {
 		if ((title != null) && (!title.equals(""))) {
-			graphicsWindow.fill(0);
-			graphicsWindow.textSize(titlePointSize);
-			graphicsWindow.textAlign(graphicsWindow.LEFT);
-			graphicsWindow.text(title, xmin + 10, ymin);
+			g.fill(0);
+			g.textSize(titlePointSize);
+			g.textAlign(g.LEFT);
+			g.text(title, xmin + 10, ymin);
 		}
 	}
 
-	private void drawYAxisLabel() {
+	private void drawYAxisLabel(PGraphics g) {
 		if ((ylabel != null) && (!ylabel.equals(""))) {
-			graphicsWindow.fill(0);
-			graphicsWindow.textSize(labelPointSize);
-			graphicsWindow.textAlign(graphicsWindow.RIGHT);
-			graphicsWindow.text(ylabel, xmin - HSPACING, (ymin + ymax) / 2);
+			g.fill(0);
+			g.textSize(labelPointSize);
+			g.textAlign(g.RIGHT);
+			g.text(ylabel, xmin - HSPACING, (ymin + ymax) / 2);
 		}
 	}
 
-	private void drawXAxisLabel() {
+	private void drawXAxisLabel(PGraphics g) {
 		if ((xlabel != null) && (!xlabel.equals(""))) {
-			graphicsWindow.fill(0);
-			graphicsWindow.textSize(labelPointSize);
-			graphicsWindow.textAlign(graphicsWindow.CENTER);
-			graphicsWindow.text(xlabel, (xmin + xmax) / 2, ymax + 22);
+			g.fill(0);
+			g.textSize(labelPointSize);
+			g.textAlign(g.CENTER);
+			g.text(xlabel, (xmin + xmax) / 2, ymax + 22);
 		}
 	}
 
-	private void drawXIncrements() {
+	private void drawXIncrements(PGraphics g) {
 		float dxinc = (xmax - xmin) / numXIncrements;
 
 		for (float i = xmin; i < xmax; i += dxinc) {
-			graphicsWindow.stroke(100);
-			graphicsWindow.line(i, ymax, i, ymax + 4);
+			g.stroke(100);
+			g.line(i, ymax, i, ymax + 4);
 		}
 	}
 
-	private void drawXIncrementLabels() {
+	private void drawXIncrementLabels(PGraphics g) {
 		float dxinc = (xmax - xmin) / numXIncrements;
 		float dataxinc = (dataxmax - dataxmin) / numXIncrements;
 		String text;
 
 		float c = dataxmin;
 		for (float i = xmin; i < xmax; i += dxinc) {
-			graphicsWindow.fill(0);
-			graphicsWindow.textSize(10);
-			graphicsWindow.textAlign(graphicsWindow.CENTER);
+			g.fill(0);
+			g.textSize(10);
+			g.textAlign(g.CENTER);
 			text = Float.toString(c);
-			graphicsWindow.text(text, i, ymax + 10);
+			g.text(text, i, ymax + 10);
 			c += dataxinc;
 		}
 	}
 
-	private void drawYIncrementLabels() {
+	private void drawYIncrementLabels(PGraphics g) {
 		float dyinc = (ymin - ymax) / numYIncrements;
 		float datayinc = (dataymax - dataymin) / numYIncrements;
 		String text;
 
 		float c = dataymax;
 		for (float i = ymax; i < ymin; i += dyinc) {
-			graphicsWindow.fill(0);
-			graphicsWindow.textSize(10);
-			graphicsWindow.textAlign(graphicsWindow.CENTER);
+			g.fill(0);
+			g.textSize(10);
+			g.textAlign(g.CENTER);
 			text = Float.toString(c);
-			graphicsWindow.text(text, xmin - HSPACING, i);
+			g.text(text, xmin - HSPACING, i);
 			c -= datayinc;
 		}
 	}
 
-	private void drawYIncrements() {
+	private void drawYIncrements(PGraphics g) {
 		float dyinc = (ymin - ymax) / numYIncrements;
 
 		for (float i = ymax; i < ymin; i += dyinc) {
-			graphicsWindow.stroke(100);
-			graphicsWindow.line(xmin, i, xmin - HSPACING / 2, i);
+			g.stroke(100);
+			g.line(xmin, i, xmin - HSPACING / 2, i);
 		}
 	}
 
-	public void plotPoint(float x, float y, Object key) {
+	public void plotPoint(float x, float y, int series) {
 		if ((x > dataxmax) && (!wrap)) {
 			return;
 		}
@@ -222,49 +309,58 @@ public class Graph {
 		}
 
 		if ((x > dataxmax) && (wrap)) {
-			// if we're wrapping, re-adjust data range
-			cleardata = true;
-			float datarange = dataxmax - dataxmin;
-			while (x > dataxmax) {
-				dataxmin += datarange;
-				dataxmax += datarange;
+			// if we're wrapping, stretch the data range to twice its length
+			// until the point fits, older points are squeezed together
+			float newxmax = dataxmax;
+			while (x > newxmax) {
+				newxmax = dataxmin + 2 * (newxmax - dataxmin);
 			}
+			setDataRanges(dataxmin, newxmax, dataymin, dataymax);
 		}
 
-		if (cleardata) {
-			clearData();
-		}
-
-		if (dataSets.containsKey(key)) {
-			ScaledDataSet d = dataSets.get(key);
-			d.addPoint(x, y);
+		ensureSeries(series);
+		if (dataSets[series] != null) {
+			dataSets[series].addPoint(x, y);
 		} else {
 			ScaledDataSet d = new ScaledDataSet();
-			d.setxScaling(dataxmin, xmin, dataxmax, xmax);
-			d.setyScaling(dataymin, ymax, dataymax, ymin);
+			setScaling(d);
 			d.addPoint(x, y);
-			dataSets.put(key, d);
-			if (!colorMap.containsKey(key)) {
-				colorMap.put(key, this.getNextColor());
+			dataSets[series] = d;
+			if (!hasColor[series]) {
+				colorMap[series] = this.getNextColor();
+				hasColor[series] = true;
 			}
 		}
 	}
 
-	// Clear all data sets. Re-create them empty
-	// with the current scaling factors.
+	// Clear all data sets, keeping their arrays
+	// and the current scaling factors.
 	private void clearData() {
-		ScaledDataSet d;
-		Set s = dataSets.keySet();
+		for (ScaledDataSet d : dataSets) {
+			if (d != null) {
+				d.clear();
+				setScaling(d);
+			}
+		}
+		plotDirty = true;
+	}
 
-		dataSets.clear();
+	// Scale a data set from the data ranges to the graph area,
+	// y grows upwards on the graph.
+	private void setScaling(ScaledDataSet d) {
+		d.setxScaling(dataxmin, xmin, dataxmax, xmax);
+		d.setyScaling(dataymin, ymax, dataymax, ymin);
+	}
 
-		for (Object f : s) {
-			d = new ScaledDataSet();
-			d.setxScaling(dataxmin, xmin, dataxmax, xmax);
-			d.setyScaling(dataymin, ymin, dataymax, ymax);
-			dataSets.put(f, d);
+	// Grow the arrays of series so they have room for a series id.
+	private void ensureSeries(int series) {
+		if (series < dataSets.length) {
+			return;
 		}
-		cleardata = false;
+		dataSets = Arrays.copyOf(dataSets, series + 1);
+		pointsDrawn = Arrays.copyOf(pointsDrawn, series + 1);
+		colorMap = Arrays.copyOf(colorMap, series + 1);
+		hasColor = Arrays.copyOf(hasColor, series + 1);
 	}
 
 	private int getNextColor() {
@@ -290,15 +386,18 @@ public class Graph {
 	}
 
 	/**
-	 * Define a color to be used for a given class of animal.
+	 * Define a color to be used for a given series.
 	 * 
-	 * @param animalClass
-	 *          The animal's Class object.
+	 * @param series
+	 *          The series, the species id of the animals it counts.
 	 * @param color
-	 *          The color to be used for the given class.
+	 *          The color to be used for the given series.
 	 */
-	public void setColor(Class animalClass, Integer color) {
-		colorMap.put(animalClass, color);
+	public void setColor(int series, int color) {
+		ensureSeries(series);
+		colorMap[series] = color;
+		hasColor[series] = true;
+		plotDirty = true;
 	}
 
 	public void clear() {
@@ -1,31 +1,57 @@
 package Graph;
 
-import java.util.ArrayList;
-
+// The points of one line of a graph, kept in float arrays so memory stays
+// bounded however long the simulation runs. The latest points are kept as
+// they are in a ring buffer. Older points are folded into min/max buckets:
+// each bucket keeps the lowest and the highest point of a run of points, so
+// the peaks and dips of the whole history stay visible. When the buckets are
+// full, neighbouring buckets are merged and every bucket covers twice as many
+// points. Points are stored unscaled, so the scaling can change without
+// losing any of them.
 public class ScaledDataSet {
-    private ArrayList<Float> xvals, yvals;
+    public static final int DEFAULT_CAPACITY = 1024; // latest points kept exactly
+    public static final int DEFAULT_BUCKETS = 512; // buckets for all older points, two points each
+
     private boolean yscaling = true;
     private boolean xscaling = true;
     private float inputymin, inputymax, scaledymin, scaledymax;
     private float inputxmin, inputxmax, scaledxmin, scaledxmax;
-    private float xmin, xmax, ymin, ymax;
+    private float xmin, xmax, ymin, ymax; // unscaled
     private float yshiftval, yscaleval, xshiftval, xscaleval;
 
+    // ring buffer of the latest points, unscaled
+    private final float[] xvals, yvals;
+    private int first = 0; // index of the oldest point in the ring
+    private int count = 0; // points in the ring
+
+    // buckets of the older points, oldest first
+    private final float[] minxvals, minyvals, maxxvals, maxyvals;
+    private int buckets = 0; // buckets in use, the last one may still take more points
+    private int bucketSize = 1; // points each full bucket covers
+    private int lastBucketSize = 0; // points the last bucket covers so far
+
     public ScaledDataSet() {
-        xvals = new ArrayList<Float>();
-        yvals = new ArrayList<Float>();
-        xmax = Float.MIN_NORMAL;
-        ymax = Float.MIN_NORMAL;
-        xmin = Float.MAX_VALUE;
-        ymin = Float.MAX_VALUE;
+        this(DEFAULT_CAPACITY, DEFAULT_BUCKETS);
+    }
+
+    // Keep the latest capacity points exactly, and everything older in
+    // the given number of buckets (rounded up to an even number).
+    public ScaledDataSet(int capacity, int buckets) {
+        int bucketCapacity = Math.max(2, buckets + (buckets & 1)); // merged in pairs
+        xvals = new float[Math.max(1, capacity)];
+        yvals = new float[xvals.length];
+        minxvals = new float[bucketCapacity];
+        minyvals = new float[bucketCapacity];
+        maxxvals = new float[bucketCapacity];
+        maxyvals = new float[bucketCapacity];
+        clear();
     }
 
     // Calling this method will automatically scale
     // all points that get added with addPoint.
     // You tell it what your input min and max are
     // and what you want the scaled min and max to be.
-    // ** addpoint will ignore data points not between
-    // the input min and max! **
+    // Points already added are scaled again.
     public void setyScaling(float inputymin, float scaledymin,
             float inputymax, float scaledymax) {
         this.inputymin = inputymin;
@@ -49,81 +75,146 @@ public class ScaledDataSet {
     }
 
     public void addPoint(float x, float y) {
-        if (yscaling) {
-            // scale the input and then add!
-            y = y*yscaleval + yshiftval;
-            yvals.add(y);
-        } else {
-            System.out.println("Graph.ScaledDataSet couldn't add point " + x + ", "
-                    + y + "; No y scale values set!");
-        }
-
-       if (xscaling) {
-            x = x*xscaleval + this.xshiftval;
-            xvals.add(x);
-        } else {
-            System.out.println("Graph.ScaledDataSet couldn't add point " + x + ", "
-                    + y + "; No x scale values set!");
+        if (count == xvals.length) {
+            // the ring is full, the oldest point moves to the buckets
+            fold(xvals[first], yvals[first]);
+            first = (first + 1) % xvals.length;
+            count--;
         }
+        int last = (first + count) % xvals.length;
+        xvals[last] = x;
+        yvals[last] = y;
+        count++;
 
         // update min and max values
-        if (x < xmin) {
-            xmin = x;
-        } else if (x > xmax) {
-            xmax = x;
+        xmin = Math.min(xmin, x);
+        xmax = Math.max(xmax, x);
+        ymin = Math.min(ymin, y);
+        ymax = Math.max(ymax, y);
+    }
+
+    // Add a point to the last bucket, or start a new bucket when it is full.
+    private void fold(float x, float y) {
+        if (buckets > 0 && lastBucketSize < bucketSize) {
+            int b = buckets - 1;
+            if (y < minyvals[b]) {
+                minxvals[b] = x;
+                minyvals[b] = y;
+            }
+            if (y > maxyvals[b]) {
+                maxxvals[b] = x;
+                maxyvals[b] = y;
+            }
+            lastBucketSize++;
+            return;
         }
+        if (buckets == minxvals.length) {
+            mergeBuckets();
+        }
+        minxvals[buckets] = x;
+        minyvals[buckets] = y;
+        maxxvals[buckets] = x;
+        maxyvals[buckets] = y;
+        buckets++;
+        lastBucketSize = 1;
+    }
 
-        if (y < ymin) {
-            ymin = y;
-        } else if (y > ymax) {
-            ymax = y;
+    // Merge every two neighbouring buckets into one, all buckets are full.
+    private void mergeBuckets() {
+        for (int i = 0; i < buckets / 2; i++) {
+            int a = 2 * i, b = a + 1;
+            int low = minyvals[b] < minyvals[a] ? b : a; // ties keep the older point
+            int high = maxyvals[b] > maxyvals[a] ? b : a;
+            minxvals[i] = minxvals[low];
+            minyvals[i] = minyvals[low];
+            maxxvals[i] = maxxvals[high];
+            maxyvals[i] = maxyvals[high];
         }
+        buckets /= 2;
+        bucketSize *= 2;
     }
 
+    // Scaled extents of the points added since the last clear.
     public float getxmin() {
-        return xmin;
+        return Math.min(scalex(xmin), scalex(xmax));
     }
 
     public float getymin() {
-        return ymin;
+        return Math.min(scaley(ymin), scaley(ymax));
     }
 
     public float getxmax() {
-        return xmax;
+        return Math.max(scalex(xmin), scalex(xmax));
     }
 
     public float getymax() {
-        return ymax;
+        return Math.max(scaley(ymin), scaley(ymax));
     }
 
-    // return number of data points in the set
+    // return number of data points in the set, two for each bucket and then
+    // the points of the ring, oldest first
     public int getSize() {
-        return xvals.size();
+        return 2 * buckets + count;
+    }
+
+    // return number of points that were added, including the ones folded
+    // into buckets
+    public long getPointsAdded() {
+        long folded = buckets == 0 ? 0 : (long) (buckets - 1) * bucketSize + lastBucketSize;
+        return folded + count;
     }
 
     public void clearData() {
-        xvals.clear();
-        yvals.clear();
-        xmax = Float.MIN_NORMAL;
-        ymax = Float.MIN_NORMAL;
-        xmin = Float.MAX_VALUE;
-        ymin = Float.MAX_VALUE;
+        clear();
     }
 
     public void clear() {
-        xvals.clear();
-        yvals.clear();
-        xmax = Float.MIN_NORMAL;
-        ymax = Float.MIN_NORMAL;
+        first = 0;
+        count = 0;
+        buckets = 0;
+        bucketSize = 1;
+        lastBucketSize = 0;
+        xmax = -Float.MAX_VALUE;
+        ymax = -Float.MAX_VALUE;
         xmin = Float.MAX_VALUE;
         ymin = Float.MAX_VALUE;
     }
 
+    // unscaled coordinates of a data point
+    public float getDatax(int num) {
+        if (num >= 2 * buckets) {
+            return xvals[(first + num - 2 * buckets) % xvals.length];
+        }
+        int b = num / 2;
+        return isMinFirst(b) == (num % 2 == 0) ? minxvals[b] : maxxvals[b];
+    }
+
+    public float getDatay(int num) {
+        if (num >= 2 * buckets) {
+            return yvals[(first + num - 2 * buckets) % yvals.length];
+        }
+        int b = num / 2;
+        return isMinFirst(b) == (num % 2 == 0) ? minyvals[b] : maxyvals[b];
+    }
+
+    // does the lowest point of a bucket come before its highest one
+    private boolean isMinFirst(int bucket) {
+        return minxvals[bucket] <= maxxvals[bucket];
+    }
+
     public float getx(int num) {
-        return xvals.get(num);
+        return scalex(getDatax(num));
     }
-    
+
     public float gety(int num) {
-        return yvals.get(num);
+        return scaley(getDatay(num));
+    }
+
+    private float scalex(float x) {
+        return xscaling ? x*xscaleval + xshiftval : x;
+    }
+
+    private float scaley(float y) {
+        return yscaling ? y*yscaleval + yshiftval : y;
     }
-}
\ No newline at end of file
+}
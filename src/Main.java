@@ -1,15 +1,18 @@
 import Animals.Fox;
 import Animals.Human;
 import Animals.Rabbit;
+import Simulator.SimulationThread;
 import Simulator.Simulator;
 import processing.core.*;
+import processing.event.MouseEvent;
 
 //main class
 public class Main extends PApplet {
     private static final int TEXT_EDGE_BUFFER = 0;
-    private static final int DELAY = 20; //delay slowing down simulation
+    private static final double STEPS_PER_SECOND = 50; //rate the simulation starts at, 0 for as fast as possible
     private Simulator simulator;
-    private boolean paused = true;
+    private SimulationThread simulation; //runs the steps, so drawing and input never wait for them
+    private double stepsPerSecond = STEPS_PER_SECOND; //rate to go back to after running as fast as possible
     private int textSize = 10;
 
     public void settings() {
@@ -28,6 +31,7 @@ public class Main extends PApplet {
         //set up
         this.simulator.populate();
         this.simulator.setGUI(this);
+        this.simulation = this.simulator.startThread(STEPS_PER_SECOND);
     }
 
     private void calculateTextSize() {
@@ -45,44 +49,50 @@ public class Main extends PApplet {
     @Override
     public void draw() {
         background(200);
-        if (!paused) {
-            simulator.simulateOneStep();
-        }
-        try {
-            Thread.sleep(DELAY);//delay
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-
         simulator.drawField();
         simulator.drawGraph();
         displayTextInstructions();
     }
 
     private void displayTextInstructions() {
-        if (paused) {
+        if (simulation.isPaused()) {
             textAlign(CENTER, CENTER);
             textSize(textSize);
 
             fill(20, 200, 35);
             stroke(20, 200, 35);
-            rect(0, height/2 - 2*textSize, width,4*textSize);
+            rect(0, height/2 - 2*textSize, width,6*textSize);
 
             fill(0);
             stroke(0);
             text("Press 'p' to pause and unpause the simulation", width/2, height/2 - textSize);
             text("Press 'r' to reset the simulation", width/2, height/2 + textSize);
+            text("Press '+', '-' or 'f' to change the speed", width/2, height/2 + 3*textSize);
         }
     }
 
     // handle key presses
     public void keyReleased() {
         if (key == 'p' || key == 'P') {                // 'p' toggles paused and unpaused
-            paused = !paused;
+            simulation.setPaused(!simulation.isPaused());
         }
 
-        if (key == 'r' || key == 'R') {                // 'r' resets the simulator
-            simulator.reset();
+        if (key == 'r' || key == 'R') {                // 'r' resets the simulator, between two steps
+            simulation.submit(simulator::reset);
+        }
+
+        if (key == '+' || key == '=') {                // '+' doubles the speed
+            stepsPerSecond *= 2;
+            simulation.setStepsPerSecond(stepsPerSecond);
+        }
+
+        if (key == '-') {                              // '-' halves the speed
+            stepsPerSecond = Math.max(1, stepsPerSecond / 2);
+            simulation.setStepsPerSecond(stepsPerSecond);
+        }
+
+        if (key == 'f' || key == 'F') {                // 'f' toggles running as fast as possible
+            simulation.setStepsPerSecond(simulation.getStepsPerSecond() == 0 ? stepsPerSecond : 0);
         }
     }
 
@@ -93,7 +103,12 @@ public class Main extends PApplet {
 
     // if mouse is dragged, let the simulator handle the mouse drag
     public void mouseDragged() {
-        simulator.handleMouseDrag(mouseX, mouseY);
+        simulator.handleMouseDrag(mouseX, mouseY, pmouseX, pmouseY);
+    }
+
+    // if the mouse wheel is turned, let the simulator zoom
+    public void mouseWheel(MouseEvent event) {
+        simulator.handleMouseWheel(event.getCount(), mouseX, mouseY);
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,121 @@
+package Simulator;
+
+import Animals.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+
+/**
+ * Runs a simulation without a window, as fast as it can, for use on machines
+ * without a display. Writes the population of every species after each step
+ * as CSV and reports steps per second when done.
+ *
+ * Usage: java -cp out:lib/corev3.jar Simulator.HeadlessRunner [--width 100]
+ * [--height 100] [--max-animals 10000] [--steps 500] [--seed n] [--threads 1]
+ * [--out counts.csv] [--load checkpoint] [--save checkpoint]
+ *
+ * With --load the run continues from a checkpoint instead of a new
+ * population, with --save the state after the last step is saved.
+ */
+public class HeadlessRunner {
+    private static final int DEFAULT_SIZE = 100;
+    private static final int DEFAULT_STEPS = 500;
+
+    public static void main(String[] args) throws IOException {
+        int width = DEFAULT_SIZE;
+        int height = DEFAULT_SIZE;
+        int max_animals = -1; //one per unit of area unless given
+        int steps = DEFAULT_STEPS;
+        long seed = System.nanoTime();
+        int threads = 1;
+        String out = null; //standard output unless given
+        String load = null; //checkpoint to continue from, a new population unless given
+        String save = null; //checkpoint to write after the last step
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) {
+                usage("missing value for " + args[i]);
+            }
+            switch (args[i++]) {
+                case "--width": width = Integer.parseInt(value); break;
+                case "--height": height = Integer.parseInt(value); break;
+                case "--max-animals": max_animals = Integer.parseInt(value); break;
+                case "--steps": steps = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--out": out = value; break;
+                case "--load": load = value; break;
+                case "--save": save = value; break;
+                default: usage("unknown option " + args[i - 1]);
+            }
+        }
+        if (max_animals < 0) {
+            max_animals = width * height;
+        }
+
+        Simulator simulator = new Simulator(width, height, max_animals);
+        simulator.addAnimal(Rabbit.class, 0.08);
+        simulator.addAnimal(Fox.class, 0.04);
+        simulator.addAnimal(Human.class, 0.0005);
+        simulator.getSpecies().register(Structure.class); //built by humans, registered now so it gets a column from the start
+        simulator.setSeed(seed);
+        simulator.setThreads(threads);
+        if (load != null) {
+            simulator.loadCheckpoint(Paths.get(load)); //also brings back the seed of the saved run
+            seed = simulator.getSeed();
+        } else {
+            simulator.populate();
+        }
+
+        PrintWriter csv = out == null
+                ? new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)))
+                : new PrintWriter(new BufferedWriter(new FileWriter(out)));
+        SpeciesRegistry species = simulator.getSpecies();
+        csv.print("step");
+        for (int s = 0; s < species.size(); s++) {
+            csv.print(',');
+            csv.print(species.getType(s).getSimpleName());
+        }
+        csv.println();
+        simulator.getStats().generateCounts(simulator.getAnimals());
+        writeCounts(csv, simulator);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++) {
+            simulator.simulateOneStep();
+            writeCounts(csv, simulator);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        csv.flush();
+        if (out != null) {
+            csv.close();
+        }
+        if (save != null) {
+            long save_start = System.nanoTime();
+            simulator.saveCheckpoint(Paths.get(save));
+            System.err.printf("saved step %d to %s in %.2f s%n", simulator.getStep(), save, (System.nanoTime() - save_start) / 1e9);
+        }
+        simulator.setThreads(1); //stop the threads
+        System.err.printf("seed %d, %d steps in %.2f s, %.1f steps/s%n", seed, steps, seconds, steps / seconds);
+    }
+
+    //one row of counts, in species id order like the header
+    private static void writeCounts(PrintWriter csv, Simulator simulator) {
+        csv.print(simulator.getStep());
+        for (int s = 0; s < simulator.getSpecies().size(); s++) {
+            csv.print(',');
+            csv.print(simulator.getStats().getCount(s));
+        }
+        csv.println();
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("usage: HeadlessRunner [--width n] [--height n] [--max-animals n] [--steps n] [--seed n] [--threads n] [--out file] [--load file] [--save file]");
+        System.exit(1);
+    }
+}
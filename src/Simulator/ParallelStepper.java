@@ -0,0 +1,132 @@
+package Simulator;
+
+import Animals.*;
+import Field.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//runs the animals of a step on several threads
+//the field is cut into square tiles, each tile is run by one thread and its animals write into the tile's own TileStep
+//the current field is only read while tiles run, and the tiles are merged in a fixed order afterwards,
+//so the result depends on the tile size but not on the number of threads
+class ParallelStepper {
+    static final double DEFAULT_TILE_SIZE = 10;
+
+    private final AnimalStore animals;
+    private final Metrics metrics;
+    private final ExecutorService pool;
+    private final List<Thread> threads = new ArrayList<>(); //threads of the pool, to measure what they allocate
+    private final List<Callable<Void>> workers = new ArrayList<>();
+    private final AtomicInteger next_tile = new AtomicInteger(); //tiles are handed out to whichever thread is free
+
+    private final double tile_size;
+    private final int columns;
+    private final int rows;
+    private final TileStep[] tiles;
+    private final RandomStream[] tile_streams; //lent to the animals of each tile, they set it to their own stream
+    private final TileMerger merger;
+    private final int[][] tile_slots; //slots of the animals in each tile, in slot order
+    private final int[] tile_sizes;
+    private final long[][] tile_species_nanos; //time spent on the animals of each species in each tile
+
+    private Field current_field;
+
+    ParallelStepper(AnimalStore animals, Metrics metrics, double width, double height, double tile_size, int threads) {
+        this.animals = animals;
+        this.metrics = metrics;
+        this.tile_size = tile_size;
+        columns = Math.max(1, (int) Math.ceil(width / tile_size));
+        rows = Math.max(1, (int) Math.ceil(height / tile_size));
+        tiles = new TileStep[columns * rows];
+        tile_streams = new RandomStream[tiles.length];
+        tile_slots = new int[tiles.length][];
+        tile_sizes = new int[tiles.length];
+        tile_species_nanos = new long[tiles.length][0];
+        for (int t = 0; t < tiles.length; t++) {
+            tiles[t] = new TileStep(animals);
+            tile_streams[t] = new RandomStream(0);
+            tile_slots[t] = new int[16];
+        }
+        merger = new TileMerger(animals);
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "simulator-step");
+            thread.setDaemon(true); //do not keep the program alive
+            synchronized (this.threads) {this.threads.add(thread);}
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.add(() -> {
+                for (int t = next_tile.getAndIncrement(); t < tiles.length; t = next_tile.getAndIncrement()) {runTile(t);}
+                return null;
+            });
+        }
+    }
+
+    //step every animal alive at the start, then merge what they did into the next field
+    //rand is only used by the merge, which runs on the calling thread
+    void step(Field current_field, Field next_field, RandomStream rand) {
+        this.current_field = current_field;
+        Arrays.fill(tile_sizes, 0);
+        int count = animals.size();
+        for (int slot = 0; slot < count; slot++) { //sort animals into tiles by where they are at the start
+            int column = Math.min(columns - 1, Math.max(0, (int) (animals.getX(slot) / tile_size)));
+            int row = Math.min(rows - 1, Math.max(0, (int) (animals.getY(slot) / tile_size)));
+            int t = row * columns + column;
+            if (tile_sizes[t] == tile_slots[t].length) {tile_slots[t] = Arrays.copyOf(tile_slots[t], tile_sizes[t] * 2);}
+            tile_slots[t][tile_sizes[t]++] = slot;
+        }
+        for (TileStep tile : tiles) {tile.reset(next_field);}
+
+        next_tile.set(0);
+        try {
+            for (Future<Void> result : pool.invokeAll(workers)) {result.get();}
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while stepping", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("an animal failed to step", e.getCause());
+        }
+        merger.merge(tiles, tiles.length, next_field, rand);
+        for (long[] species_nanos : tile_species_nanos) {
+            for (int s = 0; s < species_nanos.length; s++) {
+                metrics.addSpeciesTime(s, species_nanos[s]);
+                species_nanos[s] = 0;
+            }
+        }
+    }
+
+    private void runTile(int t) {
+        TileStep tile = tiles[t];
+        RandomStream rand = tile_streams[t];
+        int[] slots = tile_slots[t];
+        long[] species_nanos = tile_species_nanos[t];
+        long start = System.nanoTime();
+        for (int i = 0; i < tile_sizes[t]; i++) {
+            Animal animal = animals.get(slots[i]);
+            int species = animal.getSpecies();
+            animal.step(current_field, tile, rand);
+            long end = System.nanoTime(); //the end of one animal is the start of the next
+            if (species >= species_nanos.length) {species_nanos = tile_species_nanos[t] = Arrays.copyOf(species_nanos, species + 1);}
+            species_nanos[species] += end - start;
+            start = end;
+        }
+    }
+
+    //threads of the pool
+    Thread[] getThreads() {
+        synchronized (threads) {return threads.toArray(new Thread[0]);}
+    }
+
+    //stop the threads
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,255 @@
+package Simulator;
+
+import Animals.*;
+import Field.RandomStream;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many independent simulations over a grid of parameter values at the
+ * same time on a work-stealing pool. Every run is one row of a CSV table,
+ * written as soon as the run is done. When all runs are done, a summary of each
+ * grid point averaged over its seeds is printed to standard error.
+ *
+ * Parameters are the public fields of the Parameters class of an animal, for
+ * example Fox.breeding_probability or Rabbit.max_litter_size.
+ *
+ * Usage: java -cp out:lib/corev3.jar Simulator.ParameterSweep
+ * --param Fox.breeding_probability=0.1,0.15,0.2 [--param ...] [--seeds 3]
+ * [--seed 1] [--steps 500] [--width 100] [--height 100] [--parallelism n]
+ * [--out results.csv]
+ */
+public class ParameterSweep {
+    //animals of every run, Structure is built by humans
+    private static final Class<?>[] SPECIES = {Rabbit.class, Fox.class, Human.class, Structure.class};
+
+    //one parameter and the values to try
+    private static class Axis {
+        final Class<? extends Animal> type;
+        final java.lang.reflect.Field field;
+        final String[] values;
+
+        Axis(String definition) throws ReflectiveOperationException {
+            int dot = definition.indexOf('.');
+            int equals = definition.indexOf('=');
+            if (dot < 0 || equals < dot) {
+                throw new IllegalArgumentException("expected Species.parameter=value,value,... but got " + definition);
+            }
+            type = Class.forName("Animals." + definition.substring(0, dot)).asSubclass(Animal.class);
+            field = Class.forName(type.getName() + "$Parameters").getField(definition.substring(dot + 1, equals));
+            values = definition.substring(equals + 1).split(",");
+        }
+
+        String name() {
+            return type.getSimpleName() + "." + field.getName();
+        }
+    }
+
+    //how the species did in one run
+    private static class Result {
+        final int point;
+        final long seed;
+        final int[] extinct_steps = new int[SPECIES.length]; //first step without any, -1 if it never died out
+        final double[] means = new double[SPECIES.length];
+        final int[] peaks = new int[SPECIES.length];
+
+        Result(int point, long seed) {
+            this.point = point;
+            this.seed = seed;
+        }
+    }
+
+    private final List<Axis> axes;
+    private final int[][] points; //index of the value of every axis, one row per grid point
+    private final int steps;
+    private final int width;
+    private final int height;
+    private final PrintWriter table;
+
+    //per grid point sums over the seeds, for the summary
+    private final double[][] summed_means;
+    private final int[][] highest_peaks;
+    private final int[][] extinctions;
+    private final int[] runs_done;
+
+    private ParameterSweep(List<Axis> axes, int steps, int width, int height, PrintWriter table) {
+        this.axes = axes;
+        this.steps = steps;
+        this.width = width;
+        this.height = height;
+        this.table = table;
+        int count = 1;
+        for (Axis axis : axes) {count *= axis.values.length;}
+        points = new int[count][axes.size()];
+        for (int p = 0; p < count; p++) { //every combination, the last axis changes fastest
+            int rest = p;
+            for (int a = axes.size() - 1; a >= 0; a--) {
+                points[p][a] = rest % axes.get(a).values.length;
+                rest /= axes.get(a).values.length;
+            }
+        }
+        summed_means = new double[count][SPECIES.length];
+        highest_peaks = new int[count][SPECIES.length];
+        extinctions = new int[count][SPECIES.length];
+        runs_done = new int[count];
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Axis> axes = new ArrayList<>();
+        int seeds = 3;
+        long base_seed = 1;
+        int steps = 500;
+        int width = 100;
+        int height = 100;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        String out = null; //standard output unless given
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("missing value for " + args[args.length - 1]);
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--param": axes.add(new Axis(value)); break;
+                case "--seeds": seeds = Integer.parseInt(value); break;
+                case "--seed": base_seed = Long.parseLong(value); break;
+                case "--steps": steps = Integer.parseInt(value); break;
+                case "--width": width = Integer.parseInt(value); break;
+                case "--height": height = Integer.parseInt(value); break;
+                case "--parallelism": parallelism = Integer.parseInt(value); break;
+                case "--out": out = value; break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        PrintWriter table = out == null
+                ? new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)))
+                : new PrintWriter(new BufferedWriter(new FileWriter(out)));
+        ParameterSweep sweep = new ParameterSweep(axes, steps, width, height, table);
+        sweep.run(seeds, base_seed, parallelism);
+        if (out != null) {
+            table.close();
+        }
+    }
+
+    //run every grid point with every seed, seeds are the same for every point so points can be compared
+    private void run(int seeds, long base_seed, int parallelism) throws InterruptedException, ExecutionException {
+        writeHeader();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        List<Future<?>> runs = new ArrayList<>();
+        for (int p = 0; p < points.length; p++) {
+            for (int s = 0; s < seeds; s++) {
+                final int point = p;
+                final long seed = RandomStream.mix(base_seed + s);
+                runs.add(pool.submit(() -> {
+                    record(runOne(point, seed));
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> result : runs) {result.get();}
+        pool.shutdown();
+        System.err.printf("%d runs in %.1f s%n", runs.size(), (System.nanoTime() - start) / 1e9);
+        writeSummary();
+    }
+
+    //run one simulation to the end and measure every species
+    private Result runOne(int point, long seed) throws ReflectiveOperationException {
+        Simulator simulator = new Simulator(width, height, width * height);
+        simulator.addAnimal(Rabbit.class, 0.08);
+        simulator.addAnimal(Fox.class, 0.04);
+        simulator.addAnimal(Human.class, 0.0005);
+        for (int a = 0; a < axes.size(); a++) { //one parameters object per species, shared by its axes
+            Axis axis = axes.get(a);
+            Object parameters = simulator.getSpecies().getParameters(simulator.getSpecies().register(axis.type));
+            if (parameters == null) {
+                parameters = axis.field.getDeclaringClass().getDeclaredConstructor().newInstance();
+                simulator.setParameters(axis.type, parameters);
+            }
+            setField(parameters, axis.field, axis.values[points[point][a]]);
+        }
+        simulator.setSeed(seed);
+        simulator.populate();
+
+        SpeciesRegistry registry = simulator.getSpecies();
+        int[] ids = new int[SPECIES.length];
+        for (int s = 0; s < SPECIES.length; s++) {ids[s] = registry.register(SPECIES[s].asSubclass(Animal.class));}
+        Result result = new Result(point, seed);
+        long[] sums = new long[SPECIES.length];
+        Arrays.fill(result.extinct_steps, -1);
+        simulator.getStats().generateCounts(simulator.getAnimals());
+        for (int step = 0; step <= steps; step++) {
+            if (step > 0) {simulator.simulateOneStep();}
+            for (int s = 0; s < SPECIES.length; s++) {
+                int count = simulator.getStats().getCount(ids[s]);
+                sums[s] += count;
+                result.peaks[s] = Math.max(result.peaks[s], count);
+                if (count == 0 && result.extinct_steps[s] == -1 && result.peaks[s] > 0) {result.extinct_steps[s] = step;}
+            }
+            if (simulator.getAnimals().size() == 0) {break;} //nothing left, the remaining steps count as 0
+        }
+        for (int s = 0; s < SPECIES.length; s++) {result.means[s] = sums[s] / (double) (steps + 1);}
+        return result;
+    }
+
+    //set a parameter field from its text
+    private static void setField(Object parameters, java.lang.reflect.Field field, String value) throws IllegalAccessException {
+        if (field.getType() == int.class) {field.setInt(parameters, Integer.parseInt(value.trim()));}
+        else if (field.getType() == double.class) {field.setDouble(parameters, Double.parseDouble(value.trim()));}
+        else if (field.getType() == boolean.class) {field.setBoolean(parameters, Boolean.parseBoolean(value.trim()));}
+        else {throw new IllegalArgumentException("cannot sweep " + field.getName() + " of type " + field.getType());}
+    }
+
+    private void writeHeader() {
+        for (Axis axis : axes) {table.print(axis.name() + ",");}
+        table.print("seed");
+        for (Class<?> type : SPECIES) {
+            String name = type.getSimpleName();
+            table.print("," + name + "_extinct_step," + name + "_mean," + name + "_peak");
+        }
+        table.println();
+        table.flush();
+    }
+
+    //add a finished run to the table and the summary, runs finish in any order
+    private synchronized void record(Result result) {
+        for (int a = 0; a < axes.size(); a++) {table.print(axes.get(a).values[points[result.point][a]] + ",");}
+        table.print(result.seed);
+        for (int s = 0; s < SPECIES.length; s++) {
+            table.printf(",%d,%.2f,%d", result.extinct_steps[s], result.means[s], result.peaks[s]);
+            summed_means[result.point][s] += result.means[s];
+            highest_peaks[result.point][s] = Math.max(highest_peaks[result.point][s], result.peaks[s]);
+            if (result.extinct_steps[s] != -1) {extinctions[result.point][s]++;}
+        }
+        table.println();
+        table.flush();
+        runs_done[result.point]++;
+    }
+
+    //mean population, highest peak and number of runs where the species died out, for every grid point
+    private void writeSummary() {
+        StringBuilder line = new StringBuilder();
+        for (Axis axis : axes) {line.append(String.format("%-28s", axis.name()));}
+        for (Class<?> type : SPECIES) {line.append(String.format("%26s", type.getSimpleName() + " mean/peak/died"));}
+        System.err.println(line);
+        for (int p = 0; p < points.length; p++) {
+            line.setLength(0);
+            for (int a = 0; a < axes.size(); a++) {line.append(String.format("%-28s", axes.get(a).values[points[p][a]]));}
+            for (int s = 0; s < SPECIES.length; s++) {
+                String cell = String.format("%.1f/%d/%d", summed_means[p][s] / runs_done[p], highest_peaks[p][s], extinctions[p][s]);
+                line.append(String.format("%26s", cell));
+            }
+            System.err.println(line);
+        }
+    }
+}
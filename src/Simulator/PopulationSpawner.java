@@ -0,0 +1,106 @@
+package Simulator;
+
+import Animals.*;
+import Field.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+//places the starting animals of a simulation in one pass
+//the field is cut into a grid with one animal per cell, animals go to a random spot in a random free cell,
+//so a spot only has to be checked against the animals in the cells around it
+//like before, a starting animal only needs its center to be outside the other animals
+//species are picked with cumulative weights worked out once, and animals are made through the factories of the species registry
+class PopulationSpawner {
+    private static final double CELL_SIZE = 1; //radius animals start with, an animal never covers a spot more than one cell away
+    private static final int CELL_TRIES = 4; //spots tried in a cell before giving it up
+
+    //species in the order they are tried, least likely first
+    private final AnimalFactory[] factories;
+    private final double[] cumulative; //chance that one of the species up to this one is picked
+
+    PopulationSpawner(SpeciesRegistry species, List<Integer> species_ids, List<Double> probabilities) {
+        int count = species_ids.size();
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {order[i] = i;}
+        Arrays.sort(order, (a, b) -> Double.compare(probabilities.get(a), probabilities.get(b))); //stable, ties keep the order they were added in
+        this.factories = new AnimalFactory[count];
+        this.cumulative = new double[count];
+        //each species in turn gets its chance, so one is picked with its own chance times the chance that none before it was
+        double none = 1; //chance that none of the species so far were picked
+        for (int i = 0; i < count; i++) {
+            double p = Math.min(1, Math.max(0, probabilities.get(order[i])));
+            none *= 1 - p;
+            this.factories[i] = species.getFactory(species_ids.get(order[i]));
+            this.cumulative[i] = 1 - none;
+        }
+    }
+
+    //make up to max_animals attempts at spawning an animal, each spawns one of the species or nothing
+    //the field has to be empty, animals are put into it and the store
+    void spawn(AnimalStore animals, Field field, RandomStream rand, int max_animals) {
+        int columns = (int) (field.getWidth() / CELL_SIZE);
+        int rows = (int) (field.getHeight() / CELL_SIZE);
+        int cells = columns * rows;
+        int[] free_cells = new int[cells]; //cells not used yet, the first remaining of them
+        for (int c = 0; c < cells; c++) {free_cells[c] = c;}
+        int[] occupants = new int[cells]; //slot of the animal in each cell, -1 if none
+        Arrays.fill(occupants, -1);
+        int remaining = cells;
+        boolean large_placed = false; //an animal reaching further than a cell was placed, so spots have to be checked against the whole field
+
+        Vector2 spot = new Vector2();
+        for (int i = 0; i < max_animals && remaining > 0; i++) {
+            AnimalFactory factory = pick(rand.nextDouble());
+            if (factory == null) {continue;} //nothing spawns this time
+            while (remaining > 0) { //draw cells until one has room
+                int k = rand.nextInt(remaining);
+                int cell = free_cells[k];
+                free_cells[k] = free_cells[--remaining];
+                if (!findSpot(animals, field, occupants, columns, rows, cell, large_placed, rand, spot)) {continue;}
+                Animal animal = factory.create(animals, rand, true, spot.x, spot.y);
+                if (animal.getRadius() > CELL_SIZE) {large_placed = true;}
+                field.put(animal);
+                occupants[cell] = animal.getSlot();
+                break;
+            }
+        }
+    }
+
+    //species for a number between 0 and 1, null if none of them spawns
+    private AnimalFactory pick(double chance) {
+        for (int i = 0; i < cumulative.length; i++) {
+            if (chance < cumulative[i]) {return factories[i];}
+        }
+        return null;
+    }
+
+    //find a spot in a cell that is not inside another animal, returns false if none was found
+    private boolean findSpot(AnimalStore animals, Field field, int[] occupants, int columns, int rows, int cell, boolean check_field, RandomStream rand, Vector2 spot) {
+        int column = cell % columns;
+        int row = cell / columns;
+        for (int t = 0; t < CELL_TRIES; t++) {
+            double x = (column + rand.nextDouble()) * CELL_SIZE;
+            double y = (row + rand.nextDouble()) * CELL_SIZE;
+            if (!field.isLegalLocation(x, y)) {continue;} //the very edge of the field
+            if (check_field ? field.isEmpty(x, y) : isClear(animals, occupants, columns, rows, column, row, x, y)) {
+                spot.set(x, y);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //is a spot outside the animals in the cells around it
+    private static boolean isClear(AnimalStore animals, int[] occupants, int columns, int rows, int column, int row, double x, double y) {
+        for (int j = Math.max(0, row - 1); j <= Math.min(rows - 1, row + 1); j++) {
+            for (int i = Math.max(0, column - 1); i <= Math.min(columns - 1, column + 1); i++) {
+                int slot = occupants[j * columns + i];
+                if (slot == -1) {continue;}
+                double radius = animals.getRadius(slot);
+                if (Vector2.distanceSquared(animals.getX(slot), animals.getY(slot), x, y) < radius * radius) {return false;}
+            }
+        }
+        return true;
+    }
+}
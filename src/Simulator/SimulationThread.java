@@ -0,0 +1,151 @@
+package Simulator;
+
+import Field.Counter;
+import Field.FieldSnapshot;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+//runs a simulation on a thread of its own, so stepping never waits for drawing and drawing never waits for a step
+//after every step the animals are copied into a snapshot and handed to the drawing thread through a triple buffer:
+//the simulation fills one snapshot, the drawing thread reads another, and the third holds the latest finished one
+//the counts of every step are queued as well, so the graph misses no step however slowly frames are drawn
+//anything that changes the simulation, like a reset, is queued as a command and run between two steps
+public class SimulationThread {
+    private static final int FRESH = 4; //set on the middle buffer when it holds a snapshot the drawing thread has not taken yet
+    private static final int INDEX = 3; //bits of the middle buffer that hold its index
+    private static final int PENDING_COUNTS = 4096; //count rows waiting for the graph, newer ones are dropped while it is full
+    private static final long PAUSED_NANOS = 50_000_000; //how long a paused thread sleeps before looking for commands again
+    static final int[] START_OVER = new int[0]; //queued instead of counts when the run was reset or loaded, the graph starts over
+
+    private final Simulator simulator;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    //step and then species id and count of every species counted so far, one row per step, or START_OVER when the run starts over
+    private final ArrayBlockingQueue<int[]> counts = new ArrayBlockingQueue<>(PENDING_COUNTS);
+
+    private final FieldSnapshot[] snapshots = {new FieldSnapshot(), new FieldSnapshot(), new FieldSnapshot()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0; //filled by the simulation thread
+    private int front = 2; //read by the drawing thread
+    private int restarts; //restarts of the simulation seen so far, only on the simulation thread
+
+    private volatile boolean running = false;
+    private volatile boolean paused = true;
+    private volatile double steps_per_second;
+
+    //a thread for a simulation that takes steps_per_second steps a second at most, 0 for as fast as it can
+    //it starts paused
+    public SimulationThread(Simulator simulator, double steps_per_second) {
+        this.simulator = simulator;
+        this.steps_per_second = steps_per_second;
+        this.thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    //stop after the current step and wait for it
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //run something on the simulation thread before its next step, for anything that changes the simulation
+    public void submit(Runnable command) {
+        commands.add(command);
+        LockSupport.unpark(thread);
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        LockSupport.unpark(thread);
+    }
+    public boolean isPaused() {return paused;}
+
+    //steps a second at most, 0 for as fast as it can
+    public void setStepsPerSecond(double steps_per_second) {
+        this.steps_per_second = steps_per_second;
+        LockSupport.unpark(thread);
+    }
+    public double getStepsPerSecond() {return steps_per_second;}
+
+    //the latest snapshot, it stays valid until the next call, only from the drawing thread
+    public FieldSnapshot latest() {
+        if ((middle.get() & FRESH) != 0) {front = middle.getAndSet(front) & INDEX;}
+        return snapshots[front];
+    }
+
+    //the next row of counts not given out yet, null if there is none, only from the drawing thread
+    public int[] pollCounts() {
+        return counts.poll();
+    }
+
+    private void run() {
+        restarts = simulator.getRestarts();
+        publish(); //so there is something to draw right away
+        queueCounts();
+        long next_step = System.nanoTime();
+        while (running) {
+            boolean ran_commands = false;
+            for (Runnable command = commands.poll(); command != null; command = commands.poll()) {
+                command.run();
+                ran_commands = true;
+            }
+            if (ran_commands) { //show what the commands changed
+                publish();
+                if (simulator.getRestarts() != restarts) { //reset or loaded, the graph starts over from the current step
+                    restarts = simulator.getRestarts();
+                    counts.offer(START_OVER);
+                    queueCounts();
+                }
+            }
+            if (paused) {
+                LockSupport.parkNanos(PAUSED_NANOS);
+                next_step = System.nanoTime();
+                continue;
+            }
+            double rate = steps_per_second;
+            if (rate > 0) {
+                long wait = next_step - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait); //may wake early for a command, the loop then comes back here
+                    continue;
+                }
+                //a step that runs late does not make the next ones hurry to catch up
+                next_step = Math.max(next_step, System.nanoTime() - (long) (1e9 / rate)) + (long) (1e9 / rate);
+            }
+            simulator.simulateOneStep();
+            publish();
+            queueCounts();
+        }
+    }
+
+    //copy the simulation into the back snapshot and swap it into the middle
+    private void publish() {
+        snapshots[back].capture(simulator.getAnimals(), simulator.getField().getWidth(), simulator.getField().getHeight(), simulator.getStep());
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    //queue the counts of the current step for the graph
+    private void queueCounts() {
+        int[] row = new int[1 + 2 * simulator.getStats().getCounts().size()];
+        row[0] = simulator.getStep();
+        int i = 1;
+        for (Counter c : simulator.getStats().getCounts()) {
+            row[i++] = c.getSpecies();
+            row[i++] = c.getCount();
+        }
+        counts.offer(row); //dropped if the drawing thread stopped taking rows
+    }
+}
@@ -1,10 +1,11 @@
 package Simulator;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.Random;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Collections;
 
 import Animals.*;
 import Field.*;
@@ -28,13 +29,22 @@ public class Simulator {
     // How many pixels to leave as a buffer between rendered elements
     private static final int VIEW_EDGE_BUFFER = 20;
 
+    // How much one notch of the mouse wheel zooms the field view
+    private static final double ZOOM_STEP = 1.25;
 
-    // Lists of animals in the field. Separate lists are kept for ease of
+    // First bytes of every checkpoint file ("SIMC"), and the version of its layout.
+    private static final int CHECKPOINT_MAGIC = 0x434D4953;
+    private static final int CHECKPOINT_VERSION = 2;
+
+
+    // State of all animals in the field, kept in parallel arrays for fast
     // iteration.
-    private ArrayList<Animal> animal_list;
+    private AnimalStore animals;
 
-    //all animal classes that should be used
-    private ArrayList<Class<? extends Animal>> animals_to_add;
+    //integer ids of the animal classes and what makes them, shared with the fields
+    private SpeciesRegistry species;
+    //species ids that are spawned at the start, and the chance of each
+    private ArrayList<Integer> species_to_add;
     private ArrayList<Double> spawn_probabilities;
 
     // The current state of the field.
@@ -43,9 +53,35 @@ public class Simulator {
     // A second field, used to build the next stage of the simulation.
     private Field updatedField;
 
+    // Writes the step straight into updatedField when running on one thread.
+    private FieldStep fieldStep;
+
+    // Runs the step on several threads, null when running on one thread.
+    private ParallelStepper parallel;
+
+    // Runs the steps on a thread of its own while the caller draws, null when the caller runs them.
+    private SimulationThread thread;
+
+    // What the field looked like when it was last drawn without a simulation thread.
+    private FieldSnapshot snapshot;
+
+    // Seed of the run, the same seed gives the same run.
+    private long seed = System.nanoTime();
+
+    // Stream for placing the starting animals and merging parallel steps.
+    // Animals have their own streams, split off this one when they are made.
+    private RandomStream rand = new RandomStream(seed);
+
+    // Lent to animals stepping on this thread, they set it to their own stream.
+    private RandomStream stepStream = new RandomStream(0);
+
     // The current step of the simulation.
     private int step;
 
+    // How often the run started over, by a reset or a loaded checkpoint, so a
+    // simulation thread knows to start the graph over.
+    private int restarts;
+
     // A graphical view of the simulation.
     private FieldDisplay view;
 
@@ -60,6 +96,12 @@ public class Simulator {
 
     private int max_starting_animals; //max number of animals to be spawned at the beginning
 
+    // Timings and counters of the steps so far.
+    private final Metrics metrics = new Metrics();
+
+    // Tells how much heap a thread has allocated, null if the JVM cannot.
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
     /**
      * Construct a simulation field with default size.
      */
@@ -67,13 +109,25 @@ public class Simulator {
         this(DEFAULT_HEIGHT, DEFAULT_WIDTH,DEFAULT_WIDTH*DEFAULT_HEIGHT);
     }
 
-    //add animal class to simulation
+    //add animal class to simulation, gives it a species id
+    //it needs a public (AnimalStore, RandomStream, boolean, double, double) constructor
     public void addAnimal(Class<? extends Animal> type, double spawn_prob){
+        addAnimal(type, spawn_prob, AnimalFactory.of(type));
+    }
+
+    //add animal class to simulation that is made by a factory, e.g. Rabbit::new
+    public void addAnimal(Class<? extends Animal> type, double spawn_prob, AnimalFactory factory){
+        species_to_add.add(species.register(type, factory));
         spawn_probabilities.add(spawn_prob);
-        animals_to_add.add(type);
     }
 
 
+    //use different settings for an animal class in this simulation, e.g. a Fox.Parameters
+    //set before populate, animals read them while they are made
+    public void setParameters(Class<? extends Animal> type, Object parameters){
+        species.setParameters(type, parameters);
+    }
+
     /**
      * Create a simulation field with the given size.
      *
@@ -82,6 +136,18 @@ public class Simulator {
      * @param max_starting_animals Limit animals spawned at start for performance reasons
      */
     public Simulator(int width, int height, int max_starting_animals) {
+        this(width, height, max_starting_animals, SpatialIndex.Type.GRID);
+    }
+
+    /**
+     * Create a simulation field with the given size and kind of spatial index.
+     *
+     * @param height Height of the field. Must be greater than zero.
+     * @param width  Width of the field. Must be greater than zero.
+     * @param max_starting_animals Limit animals spawned at start for performance reasons
+     * @param index_type Spatial index used by the field to find nearby animals
+     */
+    public Simulator(int width, int height, int max_starting_animals, SpatialIndex.Type index_type) {
         if (width <= 0 || height <= 0) {
             System.out.println("The dimensions must be greater than zero.");
             System.out.println("Using default values.");
@@ -90,12 +156,17 @@ public class Simulator {
         }
         this.max_starting_animals = max_starting_animals; //max animals for performance reasons
 
-        animal_list = new ArrayList<Animal>();
-        field = new Field(width, height);
-        updatedField = new Field(width, height);
+        species = new SpeciesRegistry();
+        animals = new AnimalStore(species);
+        field = new Field(width, height, index_type, species);
+        updatedField = new Field(width, height, index_type, species);
+        fieldStep = new FieldStep(animals);
+        animals.setMetrics(metrics);
+        field.setMetrics(metrics);
+        updatedField.setMetrics(metrics);
         stats = new FieldStats();
         spawn_probabilities= new ArrayList<>();
-        animals_to_add = new ArrayList<>();
+        species_to_add = new ArrayList<>();
 
 
     }
@@ -111,17 +182,83 @@ public class Simulator {
         view = new FieldDisplay(p, this.field, VIEW_EDGE_BUFFER, VIEW_EDGE_BUFFER, p.width - 2*VIEW_EDGE_BUFFER, p.height / 2 - 2 * VIEW_EDGE_BUFFER);
         graph = new Graph(p, view.getLeftEdge(), view.getBottomEdge()+VIEW_EDGE_BUFFER, view.getRightEdge(), p.height-VIEW_EDGE_BUFFER, 0, 0, 500, 300);
 
-        for (Animal animal : animal_list) {
-            graph.setColor(animal.getClass(), animal.getColor().hashCode()); //set graph colors
+        for (int slot = 0; slot < animals.size(); slot++) {
+            graph.setColor(animals.getSpeciesId(slot), species.colorOf(animals.get(slot))); //set graph colors
         }
         graph.title = "";
-        for (Class<? extends Animal> c : animals_to_add) {
-            graph.title += c.getName() + " , ";
+        for (int species_id : species_to_add) {
+            graph.title += species.getType(species_id).getName() + " , ";
         }
         graph.xlabel = "Time";
         graph.ylabel = "Pop.\t\t";
     }
 
+    /**
+     * Set the seed used by the next reset, a run started from the same seed
+     * always turns out the same on one thread. On more than one thread the
+     * tiled step gives the same run whatever the number of threads, but not
+     * the run of one thread, see setThreads.
+     *
+     * @param seed Seed of all random numbers in the simulation.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Run the steps on a number of threads. With more than one thread the field
+     * is cut into tiles that run at the same time and are merged afterwards, so
+     * animals no longer see what others did earlier in the same step. The tiles
+     * are merged in a fixed order, so 2, 4 or any other number of threads all
+     * give the same run from a seed, which differs from the run on one thread.
+     *
+     * @param threads Number of threads, 1 runs the animals one after another.
+     */
+    public void setThreads(int threads) {
+        if (parallel != null) {
+            parallel.shutdown();
+            parallel = null;
+        }
+        if (threads > 1) {
+            parallel = new ParallelStepper(animals, metrics, field.getWidth(), field.getHeight(), ParallelStepper.DEFAULT_TILE_SIZE, threads);
+        }
+    }
+
+    /**
+     * Run the steps on a thread of its own, so drawing and input never wait
+     * for a step. From then on the simulation may only be changed through
+     * SimulationThread.submit, and drawField and drawGraph show the latest
+     * step the thread finished. The thread starts paused.
+     *
+     * @param stepsPerSecond Steps a second at most, 0 for as fast as possible.
+     * @return The thread running the steps.
+     */
+    public SimulationThread startThread(double stepsPerSecond) {
+        if (thread == null) {
+            thread = new SimulationThread(this, stepsPerSecond);
+            thread.start();
+        }
+        return thread;
+    }
+
+    /**
+     * Stop the simulation thread, the caller runs the steps again.
+     */
+    public void stopThread() {
+        if (thread != null) {
+            thread.stop();
+            thread = null;
+        }
+    }
+
+    public SimulationThread getThread() {
+        return thread;
+    }
+
     /**
      * Run the simulation from its current state for a reasonably long period,
      * e.g. 500 steps.
@@ -144,31 +281,92 @@ public class Simulator {
      */
     public void simulateOneStep() {
         step++;
-        ArrayList<Animal> new_animals = new ArrayList<>();
-        // Loop through Humans; let each live around.
-        for (int i = 0; i < animal_list.size(); i++) {
-            Animal animal = animal_list.get(i);
-            animal.step(field, updatedField, new_animals);
-            if (!animal.isAlive()) {
-                animal_list.remove(i);
-                i--;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        // Let each animal live. Babies are added to the end of the store and
+        // wait until the next step.
+        int count = animals.size();
+        int freed = 0;
+        if (parallel != null) {
+            parallel.step(field, updatedField, rand);
+            for (int slot = 0; slot < count; slot++) {
+                if (!animals.isAlive(slot)) {
+                    animals.free(slot);
+                    freed++;
+                }
+            }
+        } else {
+            fieldStep.setFields(field, updatedField);
+            long animal_start = start;
+            for (int slot = 0; slot < count; slot++) {
+                Animal animal = animals.get(slot);
+                int species_id = animal.getSpecies();
+                animal.step(field, fieldStep, stepStream);
+                if (!animal.isAlive()) {
+                    animals.free(slot);
+                    freed++;
+                }
+                // The end of one animal is the start of the next.
+                long animal_end = System.nanoTime();
+                metrics.addSpeciesTime(species_id, animal_end - animal_start);
+                animal_start = animal_end;
             }
         }
-        animal_list.addAll(new_animals);
+        long agents_done = System.nanoTime();
+        metrics.addTime(Metrics.Phase.AGENTS, agents_done - start);
 
         // Swap the field and updatedField at the end of the step.
         Field temp = field;
         field = updatedField;
         updatedField = temp;
         updatedField.clear();
-        stats.generateCounts(field);
-        updateGraph();
+        // Drop the dead in one pass, now no field refers to them any more.
+        animals.compact();
+        metrics.count(Metrics.Count.BIRTHS, animals.size() - (count - freed));
+        long swap_done = System.nanoTime();
+        metrics.addTime(Metrics.Phase.FIELD_SWAP, swap_done - agents_done);
+
+        stats.generateCounts(animals);
+        long counts_done = System.nanoTime();
+        metrics.addTime(Metrics.Phase.COUNTS, counts_done - swap_done);
+
+        if (thread == null) {
+            updateGraph(); // otherwise drawGraph plots the counts the thread queued
+        }
+        metrics.addTime(Metrics.Phase.GRAPH, System.nanoTime() - counts_done);
+        metrics.count(Metrics.Count.ALLOCATED_BYTES, allocatedBytes() - allocated);
+        metrics.endStep();
+    }
+
+    // Heap allocated so far by the threads that run the steps.
+    private long allocatedBytes() {
+        if (THREADS == null) {
+            return 0;
+        }
+        long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        if (parallel != null) {
+            for (Thread thread : parallel.getThreads()) {
+                bytes += Math.max(0, THREADS.getThreadAllocatedBytes(thread.getId())); // -1 once a thread is gone
+            }
+        }
+        return bytes;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null; // not a HotSpot JVM
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled() ? threads : null;
     }
 
     public void updateGraph() {
-        Counter count;
+        if (graph == null) {
+            return; // running without a window
+        }
         for (Counter c : stats.getCounts()) {
-            graph.plotPoint(step, c.getCount(), c.getClassName());
+            graph.plotPoint(step, c.getCount(), c.getSpecies());
         }
     }
 
@@ -177,91 +375,175 @@ public class Simulator {
      */
     public void reset() {
         step = 0;
-        animal_list.clear();
+        metrics.reset();
+        rand.setState(seed);
+        animals.clear();
         field.clear();
         updatedField.clear();
-        try {
-            initializeBoard(field);
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
-        } catch (InstantiationException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        }
-        if (graph != null) {
-            graph.clear();
-            graph.setDataRanges(0, 500, 0, 300);
-        }
+        initializeBoard(field);
+        restarted();
     }
 
     /**
-     * Populate a field with foxList and rabbitList.
+     * Save the whole state of the simulation to a file. The file holds the
+     * step, the seed, the state of the random streams, every animal and the
+     * order of the animals in the field, so a simulation loaded from it
+     * continues exactly as this one would. Do not save during a step. With a
+     * simulation thread, save through SimulationThread.submit.
      *
-     * @param field The field to be populated.
+     * The file is written next to the given path first and then moved over
+     * it, so an old checkpoint is never left half overwritten.
+     *
+     * Layout, version 2, little endian: magic, version, seed, state of the
+     * simulation's stream, step, field width and height, the class name of
+     * every species id and the store's columns (see AnimalStore.write), then
+     * the slots of the animals in field order. Version 1 did not hold the
+     * gamma of each animal's stream and cannot be read any more.
+     *
+     * @param path File to save to, replaced if it exists.
      */
-    private void initializeBoard(Field field) throws NoSuchMethodException, InvocationTargetException, InstantiationException, IllegalAccessException {
-        Random rand = new Random(); //random generator
-        field.clear(); //start from scratch
-        for (int i = 0; i < max_starting_animals; i++) { //for each animal that can be added
-            Class<? extends Animal> c = randomAnimal(rand,0); //get random animal type
-            if(c != null){ //if animal should be added
-                Constructor<? extends Animal> con =  c.getConstructor(boolean.class, Vector2.class);//get animal class
-                //get random free location within field
-                Vector2 location = null;
-                for (int j = 0; j < max_starting_animals; j++) {//max tries until fail
-                    Vector2 random_location = new Vector2(Math.random() * field.getWidth(), Math.random() * field.getHeight());
-                    if(field.isEmpty(random_location)){//if valid location
-                        location = random_location;
-                        break;
-                    };
-                }
-                if(location != null) { //if free location was found
-                    Animal new_animal = (Animal) con.newInstance(true, location); //create instance
-                    animal_list.add(new_animal);
-                    field.put(new_animal);
-                }
+    public void saveCheckpoint(Path path) throws IOException {
+        Path partial = path.resolveSibling(path.getFileName() + ".partial");
+        try (CheckpointWriter out = new CheckpointWriter(partial)) {
+            out.putInt(CHECKPOINT_MAGIC);
+            out.putInt(CHECKPOINT_VERSION);
+            out.putLong(seed);
+            out.putLong(rand.getState());
+            out.putInt(step);
+            out.putDouble(field.getWidth());
+            out.putDouble(field.getHeight());
+            out.putInt(species.size());
+            for (int id = 0; id < species.size(); id++) {
+                out.putString(species.getType(id).getName());
+            }
+            animals.write(out);
+            ArrayList<Animal> in_field = field.getAnimals();
+            int[] order = new int[in_field.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = in_field.get(i).getSlot();
             }
+            out.putInt(order.length);
+            out.putInts(order, order.length);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
         }
-        for (int row = 0; row < field.getHeight(); row++) { //go through positions in field
-            for (int col = 0; col < field.getWidth(); col++) {
+        Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING);
+    }
 
-                if(animal_list.size() > max_starting_animals){
-                    return; //stop adding animals for performance reasons
-                }
+    /**
+     * Replace the state of the simulation with one saved by saveCheckpoint.
+     * The field has to be as large as the one that was saved, and species
+     * are matched by class, so they may have been added in another order.
+     * Species added to this simulation keep their settings and factories.
+     * If the file cannot be read for any reason, including a missing animal
+     * class or a field of another size, the simulation is left empty. Do not load
+     * during a step. With a simulation thread, load through
+     * SimulationThread.submit.
+     *
+     * @param path File to load from.
+     */
+    public void loadCheckpoint(Path path) throws IOException {
+        try {
+            readCheckpoint(path);
+        } catch (IOException | RuntimeException e) {
+            field.clear();
+            updatedField.clear();
+            animals.clear();
+            stats.generateCounts(animals);
+            restarted(); // nothing of the old run is left to plot
+            throw e;
+        }
+        metrics.reset();
+        stats.generateCounts(animals);
+        restarted(); // the graph starts over from the loaded step
+    }
 
-            }
+    // The run started over, the graph has to start over with it.
+    private void restarted() {
+        restarts++;
+        if (graph != null && thread == null) {
+            clearGraph(); // otherwise drawGraph clears it when the thread says the run started over
         }
     }
 
-    //start the following recursive function properly
-    private Class<? extends Animal> randomAnimal(Random rand) {
-    return randomAnimal(rand,0);//threshold should start at 0
+    // How often the run started over so far.
+    int getRestarts() {
+        return restarts;
     }
 
-    //get a random animal type recursively
-    //very computationally expensive, but you dont have a lot of animal classes, and it tries the probabilities in increasing order as it should be
-    private Class<? extends Animal> randomAnimal(Random rand, double threshold) {
-        double minimum_p = Double.MAX_VALUE; //smallest probability so far
-        Class<? extends Animal> final_c = null; //associated class
-        for (int i = 0; i < animals_to_add.size(); i++) { //for each
-            Class<? extends  Animal> c = animals_to_add.get(i);
-            double p = spawn_probabilities.get(i);
-            if (p < minimum_p && p > threshold) {//if smaller but also more than the last iteration
-                minimum_p = p; //update
-                final_c = c;
+    // Read a checkpoint into the simulation, loadCheckpoint empties it if this fails.
+    private void readCheckpoint(Path path) throws IOException {
+        CheckpointReader in = new CheckpointReader(path);
+        if (in.remaining() < 8 || in.getInt() != CHECKPOINT_MAGIC) {
+            throw new IOException(path + " is not a checkpoint");
+        }
+        int version = in.getInt();
+        if (version != CHECKPOINT_VERSION) {
+            throw new IOException(path + " is a checkpoint of version " + version + ", only version " + CHECKPOINT_VERSION + " can be read");
+        }
+        long saved_seed = in.getLong();
+        long rand_state = in.getLong();
+        int saved_step = in.getInt();
+        double width = in.getDouble();
+        double height = in.getDouble();
+        if (width != field.getWidth() || height != field.getHeight()) {
+            throw new IOException(path + " is a checkpoint of a " + width + "x" + height + " field, this one is "
+                    + field.getWidth() + "x" + field.getHeight());
+        }
+        int species_count = in.getInt();
+        if (species_count < 0 || species_count > in.remaining()) {
+            throw new IOException(path + " is damaged, it has " + species_count + " species");
+        }
+        // find every class before registering any, so a missing one leaves the registry as it was
+        ArrayList<Class<? extends Animal>> types = new ArrayList<>();
+        for (int id = 0; id < species_count; id++) {
+            String name = in.getString();
+            try {
+                types.add(Class.forName(name).asSubclass(Animal.class));
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException(path + " holds animals of " + name + ", which is not an animal class here", e);
             }
         }
-        if(final_c == null){
-            return null;
+        int[] species_ids = new int[species_count]; // ids of the checkpoint to ids of this simulation
+        for (int id = 0; id < species_count; id++) {
+            species_ids[id] = species.register(types.get(id));
         }
-        if(rand.nextDouble() < minimum_p){
-            return final_c; //randomly selected
+
+        field.clear();
+        updatedField.clear();
+        animals.read(in, species_ids);
+        int in_field = in.getInt();
+        if (in_field < 0 || in_field > animals.size()) {
+            throw new IOException(path + " is damaged, it has " + in_field + " animals in the field");
+        }
+        int[] order = new int[in_field];
+        in.getInts(order, in_field);
+        for (int slot : order) {
+            if (slot < 0 || slot >= animals.size()) {
+                throw new IOException(path + " is damaged, it has an animal in the field at slot " + slot);
+            }
+            field.put(animals.get(slot));
         }
-        return randomAnimal(rand, minimum_p);//try again with a larger probability
 
+        seed = saved_seed;
+        rand.setState(rand_state);
+        step = saved_step;
+    }
+
+    private void clearGraph() {
+        graph.clear();
+        graph.setDataRanges(0, 500, 0, 300);
+    }
+
+    /**
+     * Populate a field with the animals that were added, in one pass.
+     *
+     * @param field The field to be populated.
+     */
+    private void initializeBoard(Field field) {
+        field.clear(); //start from scratch
+        new PopulationSpawner(species, species_to_add, spawn_probabilities).spawn(animals, field, rand, max_starting_animals);
     }
 
     /**
@@ -270,35 +552,91 @@ public class Simulator {
      * @return true If there is more than one species alive.
      */
     private boolean isViable() {
-        return stats.isViable(field);
+        return stats.isViable(animals);
     }
 
     public Field getField() {
         return this.field;
     }
 
-    // Draw field if we have a gui defined
+    public AnimalStore getAnimals() {
+        return this.animals;
+    }
+
+    public SpeciesRegistry getSpecies() {
+        return this.species;
+    }
+
+    public FieldStats getStats() {
+        return this.stats;
+    }
+
+    public int getStep() {
+        return this.step;
+    }
+
+    public Metrics getMetrics() {
+        return this.metrics;
+    }
+
+    // Draw field if we have a gui defined, the latest step of the simulation
+    // thread if there is one
     public void drawField() {
         if ((graphicsWindow != null) && (view != null)) {
-            view.drawField(this.field);
+            if (thread != null) {
+                view.drawField(thread.latest());
+                return;
+            }
+            if (snapshot == null) {
+                snapshot = new FieldSnapshot();
+            }
+            snapshot.capture(animals, field.getWidth(), field.getHeight(), step);
+            view.drawField(snapshot);
         }
     }
 
     public void drawGraph() {
+        if (graph == null) {
+            return;
+        }
+        if (thread != null) {
+            // plot the steps the thread finished since the last frame
+            for (int[] row = thread.pollCounts(); row != null; row = thread.pollCounts()) {
+                if (row == SimulationThread.START_OVER) {
+                    clearGraph();
+                    continue;
+                }
+                for (int i = 1; i < row.length; i += 2) {
+                    graph.plotPoint(row[0], row[i + 1], row[i]);
+                }
+            }
+        }
         graph.draw();
     }
 
 
+    // Clicking on the field moves the part of the field under the mouse to the middle of the view.
     public void handleMouseClick(float mouseX, float mouseY) {
-        Vector2 loc = new Vector2(mouseX, mouseY); // get grid at
-        Vector2 pos = view.gridLocationAt(loc);
-      //add something here
+        if (view == null) {
+            return;
+        }
+        view.centerOn(mouseX, mouseY);
     }
-    public void handleMouseDrag(int mouseX, int mouseY) {
-        Vector2 loc = new Vector2(mouseX, mouseY); // get grid at
-        Vector2 pos = view.gridLocationAt(loc);
-     // add something here
 
+    // Dragging on the field moves the view with the mouse.
+    public void handleMouseDrag(float mouseX, float mouseY, float previousX, float previousY) {
+        if (view == null || !view.contains(previousX, previousY)) {
+            return;
+        }
+        view.pan(mouseX - previousX, mouseY - previousY);
+    }
+
+    // Scrolling over the field zooms in (up) or out (down) around the mouse.
+    public void handleMouseWheel(float amount, float mouseX, float mouseY) {
+        if (view == null || !view.contains(mouseX, mouseY)) {
+            return;
+        }
+        view.zoom((float) Math.pow(ZOOM_STEP, -amount), mouseX, mouseY);
     }
 
 }
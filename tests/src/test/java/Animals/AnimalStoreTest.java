@@ -0,0 +1,72 @@
+package Animals;
+
+import Field.RandomStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+//handles stay with their animals while others are removed, and stores that gave animals away can still remove slots
+class AnimalStoreTest {
+    private final SpeciesRegistry species = new SpeciesRegistry();
+    private final RandomStream stream = new RandomStream(1);
+
+    @Test
+    void handlesFollowAnimalsThroughRemoveAndCompact() {
+        AnimalStore store = new AnimalStore(species);
+        ArrayList<Animal> living = new ArrayList<>();
+        Random rand = new Random(4);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 20; i++) {living.add(new Rabbit(store, stream, false, i, round));}
+            for (int i = 0; i < 5; i++) { //right away
+                Animal animal = living.remove(rand.nextInt(living.size()));
+                store.remove(animal.getSlot());
+                assertEquals(-1, animal.getSlot());
+            }
+            ArrayList<Animal> freed = new ArrayList<>();
+            for (int i = 0; i < 5; i++) { //at the end of a step, one of them twice
+                Animal animal = living.remove(rand.nextInt(living.size()));
+                store.free(animal.getSlot());
+                freed.add(animal);
+            }
+            store.free(freed.get(0).getSlot());
+            store.compact();
+            for (Animal animal : freed) {assertEquals(-1, animal.getSlot());}
+            assertEquals(living.size(), store.size());
+            assertEquals(living.size(), store.getCount(species.idOf(Rabbit.class)));
+            for (Animal animal : living) {
+                assertEquals(animal, store.get(animal.getSlot()));
+                assertEquals(animal.getSlot(), store.slotOf(animal.getHandle()));
+                assertEquals(animal.getHandle(), store.getHandle(animal.getSlot()));
+            }
+        }
+    }
+
+    @Test
+    void storeCanRemoveSlotsOfAdoptedAnimals() {
+        AnimalStore store = new AnimalStore(species);
+        AnimalStore nursery = new AnimalStore(species);
+        Animal kept = new Rabbit(nursery, stream, false, 1, 1);
+        Animal adopted = new Rabbit(nursery, stream, false, 2, 2);
+        Animal last = new Rabbit(nursery, stream, false, 3, 3);
+        store.adopt(adopted);
+        assertNull(nursery.get(1));
+        nursery.remove(1); //the slot of the animal that moved to the other store
+        assertEquals(0, adopted.getSlot());
+        assertEquals(1, last.getSlot());
+
+        Animal born = new Rabbit(nursery, stream, false, 4, 4);
+        store.adopt(born);
+        nursery.free(kept.getSlot());
+        nursery.compact(); //moves the empty slot of the adopted animal down
+        assertEquals(-1, kept.getSlot());
+        assertEquals(0, last.getSlot());
+        assertEquals(1, born.getSlot());
+        assertEquals(store, born.store);
+        nursery.clear();
+        assertEquals(1, born.getSlot());
+    }
+}
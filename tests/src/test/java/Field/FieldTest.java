@@ -0,0 +1,92 @@
+package Field;
+
+import Animals.Animal;
+import Animals.AnimalStore;
+import Animals.Fox;
+import Animals.Rabbit;
+import Animals.SpeciesRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+//the field finds the same closest animals as a linear scan over all of them, ties go to the lowest store handle
+class FieldTest {
+    private static final double SIZE = 60;
+
+    private final SpeciesRegistry species = new SpeciesRegistry();
+    private final AnimalStore store = new AnimalStore(species);
+    private final RandomStream stream = new RandomStream(1);
+
+    @Test
+    void closestAnimalMatchesLinearScan() {
+        for (SpatialIndex.Type type : SpatialIndex.Type.values()) {
+            Field field = new Field(SIZE, SIZE, type, species);
+            Random rand = new Random(3);
+            ArrayList<Animal> placed = new ArrayList<>();
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 40; i++) { //whole numbers, so some animals are equally far from a query
+                    double x = rand.nextInt((int) SIZE), y = rand.nextInt((int) SIZE);
+                    Animal animal = rand.nextInt(3) == 0 ? new Fox(store, stream, false, x, y) : new Rabbit(store, stream, false, x, y);
+                    field.put(animal);
+                    placed.add(animal);
+                }
+                for (int i = 0; i < 25; i++) { //removing reorders the field's list and frees handles for reuse
+                    Animal animal = placed.remove(rand.nextInt(placed.size()));
+                    field.remove(animal);
+                    store.remove(animal.getSlot());
+                }
+                for (int query = 0; query < 50; query++) {
+                    double x = rand.nextInt((int) SIZE) + 0.5 * rand.nextInt(2);
+                    double y = rand.nextInt((int) SIZE) + 0.5 * rand.nextInt(2);
+                    String where = type + " round " + round + " at " + x + ", " + y;
+                    assertSame(scan(field, x, y, -1), field.closestAnimal(x, y), "closestAnimal, " + where);
+                    assertSame(scan(field, x, y, species.idOf(Fox.class)), field.closestAnimalOfType(x, y, Fox.class), "foxes, " + where);
+                    assertSame(scan(field, x, y, species.idOf(Rabbit.class)), field.closestAnimalOfType(x, y, Rabbit.class), "rabbits, " + where);
+                }
+            }
+            for (Animal animal : placed) {store.remove(animal.getSlot());}
+        }
+    }
+
+    @Test
+    void equallyFarAnimalsGoToLowestHandle() {
+        for (SpatialIndex.Type type : SpatialIndex.Type.values()) {
+            Field field = new Field(SIZE, SIZE, type, species);
+            Animal first = new Rabbit(store, stream, false, 10, 20);
+            Animal second = new Rabbit(store, stream, false, 30, 20);
+            field.put(second); //first in the field's list, but made later so it has the higher handle
+            field.put(first);
+            assertEquals(second, field.getAnimals().get(0));
+            assertSame(first, field.closestAnimal(20, 20), type.toString());
+            assertSame(first, field.closestAnimalOfType(20, 20, Rabbit.class), type.toString());
+            store.clear();
+        }
+    }
+
+    @Test
+    void emptyFieldHasNoClosestAnimal() {
+        Field field = new Field(SIZE, SIZE, SpatialIndex.Type.GRID, species);
+        assertNull(field.closestAnimal(5, 5));
+        assertNull(field.closestAnimalOfType(5, 5, Fox.class));
+    }
+
+    //closest animal of a species id (-1 for any) the slow way, lowest handle first on ties
+    private static Animal scan(Field field, double x, double y, int species_id) {
+        Animal closest = null;
+        double closest_distance = Double.MAX_VALUE;
+        for (Animal a : field.getAnimals()) {
+            if (species_id != -1 && a.getSpecies() != species_id) {continue;}
+            double distance = Vector2.distanceSquared(a.getX(), a.getY(), x, y);
+            if (distance < closest_distance || (distance == closest_distance && a.getHandle() < closest.getHandle())) {
+                closest_distance = distance;
+                closest = a;
+            }
+        }
+        return closest;
+    }
+}
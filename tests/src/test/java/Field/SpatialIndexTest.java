@@ -0,0 +1,170 @@
+package Field;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//every spatial index has to answer exactly like a linear scan over the live entries, ties included
+class SpatialIndexTest {
+    private static final double SIZE = 100;
+    private static final int ENTRIES = 3000;
+
+    //entries kept next to an index, to scan them the slow way
+    private static class Entries {
+        final double[] xs = new double[ENTRIES];
+        final double[] ys = new double[ENTRIES];
+        final double[] radii = new double[ENTRIES];
+        final boolean[] live = new boolean[ENTRIES];
+
+        int nearest(double x, double y, boolean even_only) {
+            int best = -1;
+            double best_distance = Double.MAX_VALUE;
+            for (int id = 0; id < ENTRIES; id++) {
+                if (!live[id] || (even_only && id % 2 != 0)) {continue;}
+                double distance = Vector2.distanceSquared(xs[id], ys[id], x, y);
+                if (distance < best_distance) { //ids go up, so the first of a tie is the lowest
+                    best_distance = distance;
+                    best = id;
+                }
+            }
+            return best;
+        }
+
+        Set<Integer> overlapping(double x, double y, double radius) {
+            Set<Integer> found = new HashSet<>();
+            for (int id = 0; id < ENTRIES; id++) {
+                double touching = radius + radii[id];
+                if (live[id] && Vector2.distanceSquared(xs[id], ys[id], x, y) < touching * touching) {found.add(id);}
+            }
+            return found;
+        }
+    }
+
+    @Test
+    void gridMatchesLinearScan() {
+        check(SpatialIndex.Type.GRID);
+    }
+
+    @Test
+    void kdTreeMatchesLinearScan() {
+        check(SpatialIndex.Type.KD_TREE);
+    }
+
+    @Test
+    void sweepAndPruneMatchesLinearScan() {
+        check(SpatialIndex.Type.SWEEP_AND_PRUNE);
+    }
+
+    @Test
+    void kdTreeAnswersQueriesFromSeveralThreads() throws Exception {
+        concurrentQueries(SpatialIndex.Type.KD_TREE);
+    }
+
+    @Test
+    void gridAnswersQueriesFromSeveralThreads() throws Exception {
+        concurrentQueries(SpatialIndex.Type.GRID);
+    }
+
+    @Test
+    void sweepAndPruneAnswersQueriesFromSeveralThreads() throws Exception {
+        concurrentQueries(SpatialIndex.Type.SWEEP_AND_PRUNE);
+    }
+
+    //fill an index row by row, then move, remove and add entries for a while, comparing queries after every round
+    private void check(SpatialIndex.Type type) {
+        Random rand = new Random(1);
+        SpatialIndex index = type.create(SIZE, SIZE);
+        Entries entries = new Entries();
+        fillInRows(index, entries);
+        for (int round = 0; round < 30; round++) {
+            for (int id = 0; id < ENTRIES; id++) {
+                int action = rand.nextInt(10);
+                if (entries.live[id] && action < 7) {
+                    entries.xs[id] = clamp(entries.xs[id] + rand.nextGaussian());
+                    entries.ys[id] = clamp(entries.ys[id] + rand.nextGaussian());
+                    index.move(id, entries.xs[id], entries.ys[id]);
+                } else if (entries.live[id] && action == 7) {
+                    index.remove(id);
+                    entries.live[id] = false;
+                } else if (!entries.live[id] && action > 7) {
+                    //whole numbers, so some entries end up equally far from a query and ties get tested
+                    entries.xs[id] = rand.nextInt((int) SIZE);
+                    entries.ys[id] = rand.nextInt((int) SIZE);
+                    index.insert(id, entries.xs[id], entries.ys[id], entries.radii[id]);
+                    entries.live[id] = true;
+                }
+            }
+            for (int query = 0; query < 40; query++) {
+                double x = rand.nextInt((int) SIZE) + 0.5 * rand.nextInt(2);
+                double y = rand.nextInt((int) SIZE) + 0.5 * rand.nextInt(2);
+                double radius = rand.nextDouble() * 3;
+                String where = type + " round " + round + " at " + x + ", " + y;
+                assertEquals(entries.nearest(x, y, false), index.nearest(x, y, null), "nearest, " + where);
+                assertEquals(entries.nearest(x, y, true), index.nearest(x, y, id -> id % 2 == 0), "nearest even, " + where);
+                Set<Integer> expected = entries.overlapping(x, y, radius);
+                assertEquals(!expected.isEmpty(), index.overlapsAny(x, y, radius), "overlapsAny, " + where);
+                Set<Integer> visited = new HashSet<>();
+                index.visitOverlapping(x, y, radius, (id, ex, ey, er) -> visited.add(id));
+                assertEquals(expected, visited, "visitOverlapping, " + where);
+            }
+        }
+    }
+
+    //many threads query one index at the same time, like the tiles of a parallel step, and must all get the answers of a scan
+    private void concurrentQueries(SpatialIndex.Type type) throws Exception {
+        SpatialIndex index = type.create(SIZE, SIZE);
+        Entries entries = new Entries();
+        fillInRows(index, entries);
+        Random rand = new Random(2);
+        int queries = 2000;
+        double[] xs = new double[queries], ys = new double[queries];
+        int[] expected = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            xs[q] = rand.nextDouble() * SIZE;
+            ys[q] = rand.nextDouble() * SIZE;
+            expected[q] = entries.nearest(xs[q], ys[q], false);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(pool.submit(() -> {
+                    int[] found = new int[queries];
+                    for (int q = 0; q < queries; q++) {found[q] = index.nearest(xs[q], ys[q], null);}
+                    return found;
+                }));
+            }
+            for (Future<int[]> result : results) {
+                int[] found = result.get();
+                for (int q = 0; q < queries; q++) {assertEquals(expected[q], found[q], type + " query " + q);}
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    //entries in sorted order, the worst case for a tree
+    private static void fillInRows(SpatialIndex index, Entries entries) {
+        int columns = (int) Math.sqrt(ENTRIES);
+        for (int id = 0; id < ENTRIES; id++) {
+            entries.xs[id] = (id % columns) * SIZE / columns;
+            entries.ys[id] = (id / columns) * SIZE / columns;
+            entries.radii[id] = id % 5 == 0 ? 2 : 1;
+            entries.live[id] = true;
+            index.insert(id, entries.xs[id], entries.ys[id], entries.radii[id]);
+        }
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(SIZE - 1e-9, value));
+    }
+}
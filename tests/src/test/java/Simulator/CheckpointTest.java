@@ -0,0 +1,138 @@
+package Simulator;
+
+import Animals.Fox;
+import Animals.Human;
+import Animals.Rabbit;
+import Field.SpatialIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//a simulation loaded from a checkpoint is the one that was saved, and goes on exactly like it
+class CheckpointTest {
+    private static final int STEPS = 30;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void loadedSimulationContinuesLikeTheSavedOne() throws IOException {
+        continuesLikeTheSavedOne(1, 1);
+    }
+
+    @Test
+    void loadedTiledSimulationContinuesLikeTheSavedOne() throws IOException {
+        continuesLikeTheSavedOne(2, 3); //the tiled step is the same on any number of threads
+    }
+
+    private void continuesLikeTheSavedOne(int saved_threads, int loaded_threads) throws IOException {
+        Path checkpoint = folder.resolve("run.checkpoint");
+        Simulator saved = ReproducibilityTest.simulation(7, saved_threads, SpatialIndex.Type.GRID);
+        String at_save;
+        try {
+            saved.populate();
+            for (int step = 0; step < STEPS; step++) {saved.simulateOneStep();}
+            saved.saveCheckpoint(checkpoint);
+            at_save = ReproducibilityTest.state(saved);
+            for (int step = 0; step < STEPS; step++) {saved.simulateOneStep();}
+        } finally {
+            saved.setThreads(1);
+        }
+
+        //species added in another order get other ids, the checkpoint maps them by class
+        Simulator loaded = new Simulator(ReproducibilityTest.SIZE, ReproducibilityTest.SIZE, 0);
+        loaded.addAnimal(Human.class, 0.0005);
+        loaded.addAnimal(Fox.class, 0.04);
+        loaded.addAnimal(Rabbit.class, 0.08);
+        loaded.setThreads(loaded_threads);
+        try {
+            loaded.loadCheckpoint(checkpoint);
+            assertEquals(at_save, ReproducibilityTest.state(loaded));
+            assertEquals(saved.getSeed(), loaded.getSeed());
+            for (int step = 0; step < STEPS; step++) {loaded.simulateOneStep();}
+            assertEquals(ReproducibilityTest.state(saved), ReproducibilityTest.state(loaded));
+        } finally {
+            loaded.setThreads(1);
+        }
+    }
+
+    @Test
+    void damagedCheckpointLeavesSimulationEmpty() throws IOException {
+        Path checkpoint = folder.resolve("run.checkpoint");
+        Simulator saved = ReproducibilityTest.simulation(5, 1, SpatialIndex.Type.GRID);
+        saved.populate();
+        saved.simulateOneStep();
+        saved.saveCheckpoint(checkpoint);
+        byte[] bytes = Files.readAllBytes(checkpoint);
+
+        Path cut = folder.resolve("cut.checkpoint");
+        Files.write(cut, Arrays.copyOf(bytes, bytes.length / 2));
+        assertEmptyAfterFailedLoad(cut);
+
+        Path unknown_class = folder.resolve("unknown.checkpoint");
+        Files.write(unknown_class, new String(bytes, "ISO-8859-1").replace("Animals.Fox", "Animals.Fix").getBytes("ISO-8859-1"));
+        assertEmptyAfterFailedLoad(unknown_class);
+
+        Path old_version = folder.resolve("old.checkpoint");
+        byte[] version_1 = bytes.clone();
+        version_1[4] = 1; //the version follows the magic, little endian
+        Files.write(old_version, version_1);
+        assertEmptyAfterFailedLoad(old_version);
+
+        assertEmptyAfterFailedLoad(folder.resolve("missing.checkpoint"));
+    }
+
+    @Test
+    void simulationThreadStartsTheGraphOverOnLoad() throws Exception {
+        Path checkpoint = folder.resolve("run.checkpoint");
+        Simulator saved = ReproducibilityTest.simulation(5, 1, SpatialIndex.Type.GRID);
+        saved.populate();
+        for (int step = 0; step < STEPS; step++) {saved.simulateOneStep();}
+        saved.saveCheckpoint(checkpoint);
+
+        Simulator simulator = ReproducibilityTest.simulation(5, 1, SpatialIndex.Type.GRID);
+        simulator.populate();
+        SimulationThread thread = simulator.startThread(0); //starts paused, commands still run
+        try {
+            thread.submit(() -> {
+                try {
+                    simulator.loadCheckpoint(checkpoint);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            assertEquals(0, nextCounts(thread)[0]); //counts of the populated field
+            assertSame(SimulationThread.START_OVER, nextCounts(thread));
+            assertEquals(STEPS, nextCounts(thread)[0]); //the graph goes on from the loaded step
+        } finally {
+            simulator.stopThread();
+        }
+    }
+
+    //wait for the next row of counts the thread queues for the graph
+    private static int[] nextCounts(SimulationThread thread) throws InterruptedException {
+        long give_up = System.nanoTime() + 10_000_000_000L;
+        for (int[] row = thread.pollCounts(); ; row = thread.pollCounts()) {
+            if (row != null) {return row;}
+            if (System.nanoTime() > give_up) {throw new AssertionError("the simulation thread queued no counts");}
+            Thread.sleep(5);
+        }
+    }
+
+    private static void assertEmptyAfterFailedLoad(Path checkpoint) {
+        Simulator simulator = ReproducibilityTest.simulation(5, 1, SpatialIndex.Type.GRID);
+        simulator.populate();
+        assertThrows(IOException.class, () -> simulator.loadCheckpoint(checkpoint));
+        assertEquals(0, simulator.getAnimals().size());
+        assertEquals(0, simulator.getField().getAnimals().size());
+    }
+}
@@ -0,0 +1,23 @@
+package Simulator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//options are checked before any of them is used
+class ParameterSweepTest {
+    @Test
+    void optionWithoutValueIsReportedFirst() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ParameterSweep.main(new String[]{"--param", "X", "--seeds"}));
+        assertEquals("missing value for --seeds", e.getMessage());
+    }
+
+    @Test
+    void unknownOptionIsReported() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ParameterSweep.main(new String[]{"--seeds", "2", "--colour", "red"}));
+        assertEquals("unknown option --colour", e.getMessage());
+    }
+}
@@ -0,0 +1,126 @@
+package Simulator;
+
+import Animals.AnimalStore;
+import Animals.Fox;
+import Animals.Human;
+import Animals.Rabbit;
+import Field.RandomStream;
+import Field.SpatialIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//a seed gives the same run every time and whatever spatial index the field uses
+//one thread steps the animals one after another, more threads use the tiled step, which is the same on any number of them
+class ReproducibilityTest {
+    static final int SIZE = 120;
+    static final int STEPS = 40;
+
+    //a simulation with the usual animals, not populated yet
+    static Simulator simulation(long seed, int threads, SpatialIndex.Type index) {
+        Simulator simulator = new Simulator(SIZE, SIZE, SIZE * SIZE, index);
+        simulator.addAnimal(Rabbit.class, 0.08);
+        simulator.addAnimal(Fox.class, 0.04);
+        simulator.addAnimal(Human.class, 0.0005);
+        simulator.setSeed(seed);
+        simulator.setThreads(threads);
+        return simulator;
+    }
+
+    //everything about the animals that a step can change, in slot order, with species by name so registries may differ
+    static String state(Simulator simulator) {
+        AnimalStore animals = simulator.getAnimals();
+        StringBuilder state = new StringBuilder("step " + simulator.getStep() + "\n");
+        for (int slot = 0; slot < animals.size(); slot++) {
+            state.append(animals.getSpecies().getType(animals.getSpeciesId(slot)).getSimpleName())
+                    .append(' ').append(animals.getX(slot))
+                    .append(' ').append(animals.getY(slot))
+                    .append(' ').append(animals.getRadius(slot))
+                    .append(' ').append(animals.getAge(slot))
+                    .append(' ').append(animals.isAlive(slot))
+                    .append(' ').append(animals.getGene(slot))
+                    .append('\n');
+        }
+        return state.toString();
+    }
+
+    static String run(long seed, int threads, SpatialIndex.Type index) {
+        Simulator simulator = simulation(seed, threads, index);
+        try {
+            simulator.populate();
+            for (int step = 0; step < STEPS; step++) {simulator.simulateOneStep();}
+            return state(simulator);
+        } finally {
+            simulator.setThreads(1); //stop the pool
+        }
+    }
+
+    @Test
+    void sameSeedGivesSameRunOnOneThread() {
+        assertEquals(run(7, 1, SpatialIndex.Type.GRID), run(7, 1, SpatialIndex.Type.GRID));
+    }
+
+    @Test
+    void tiledStepGivesSameRunOnAnyNumberOfThreads() {
+        String two_threads = run(7, 2, SpatialIndex.Type.GRID);
+        assertEquals(two_threads, run(7, 3, SpatialIndex.Type.GRID));
+        assertEquals(two_threads, run(7, 4, SpatialIndex.Type.GRID));
+    }
+
+    @Test
+    void sameSeedGivesSameRunWithEveryIndex() {
+        String one_thread = run(7, 1, SpatialIndex.Type.GRID);
+        String tiled = run(7, 3, SpatialIndex.Type.GRID);
+        for (SpatialIndex.Type index : SpatialIndex.Type.values()) {
+            assertEquals(one_thread, run(7, 1, index), index.toString());
+            assertEquals(tiled, run(7, 3, index), index + " on 3 threads");
+        }
+    }
+
+    @Test
+    void otherSeedGivesOtherRun() {
+        assertNotEquals(run(7, 1, SpatialIndex.Type.GRID), run(8, 1, SpatialIndex.Type.GRID));
+    }
+
+    @Test
+    void resetStartsTheSameRunAgain() {
+        Simulator simulator = simulation(3, 1, SpatialIndex.Type.GRID);
+        simulator.populate();
+        for (int step = 0; step < 10; step++) {simulator.simulateOneStep();}
+        String first = state(simulator);
+        simulator.reset();
+        for (int step = 0; step < 10; step++) {simulator.simulateOneStep();}
+        assertEquals(first, state(simulator));
+    }
+
+    @Test
+    void streamContinuesFromASavedState() {
+        long[] states = new long[1], gammas = new long[1];
+        new RandomStream(42).split(states, gammas, 0);
+        RandomStream stream = new RandomStream(states[0], gammas[0]);
+        stream.nextLong();
+        long saved = stream.getState();
+        long[] expected = {stream.nextLong(), stream.nextLong(), stream.nextLong()};
+        RandomStream restored = new RandomStream(0);
+        restored.set(saved, gammas[0]);
+        for (long value : expected) {assertEquals(value, restored.nextLong());}
+    }
+
+    @Test
+    void splitStreamsGetTheirOwnGamma() {
+        RandomStream parent = new RandomStream(42);
+        long[] states = new long[100], gammas = new long[100];
+        Set<Long> seen = new HashSet<>();
+        seen.add(parent.getGamma());
+        for (int i = 0; i < states.length; i++) {
+            parent.split(states, gammas, i);
+            assertEquals(1, gammas[i] & 1, "gammas are odd");
+            assertTrue(seen.add(gammas[i]), "every stream steps through its own sequence");
+        }
+    }
+}